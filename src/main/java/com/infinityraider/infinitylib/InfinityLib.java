@@ -10,6 +10,7 @@ import com.infinityraider.infinitylib.proxy.ServerProxy;
 import com.infinityraider.infinitylib.reference.Reference;
 import com.infinityraider.infinitylib.render.model.InfModelLoader;
 import com.infinityraider.infinitylib.render.model.InfModelLoaderComposite;
+import com.infinityraider.infinitylib.render.model.InfModelLoaderTessellated;
 import com.infinityraider.infinitylib.sound.MessagePlaySound;
 import com.infinityraider.infinitylib.sound.MessageStopSound;
 import net.minecraftforge.api.distmarker.Dist;
@@ -56,6 +57,7 @@ public class InfinityLib extends InfinityMod<IProxy, Config> {
         wrapper.registerMessage(MessageSyncTile.class);
         wrapper.registerMessage(MessagePlaySound.class);
         wrapper.registerMessage(MessageStopSound.class);
+        wrapper.registerMessage(MessageSyncMultiBlock.class);
         Module.getActiveModules().stream().sorted().forEach(m -> m.registerMessages(wrapper));
     }
 
@@ -63,7 +65,8 @@ public class InfinityLib extends InfinityMod<IProxy, Config> {
     @OnlyIn(Dist.CLIENT)
     public List<InfModelLoader<?>> getModModelLoaders() {
         return ImmutableList.of(
-                InfModelLoaderComposite.getInstance()
+                InfModelLoaderComposite.getInstance(),
+                InfModelLoaderTessellated.getInstance()
         );
     }
 }
\ No newline at end of file
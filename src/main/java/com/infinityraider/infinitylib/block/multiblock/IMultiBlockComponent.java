@@ -18,6 +18,17 @@ public interface IMultiBlockComponent<M extends IMultiBlockManager<T>, T extends
      */
     void setMultiBlockPartData(T data);
 
+    /**
+     * Sets the multi-block data as part of a bulk update of the entire structure.
+     * The manager marks the component dirty and syncs the whole structure to the client in a single message afterwards,
+     * therefore implementations should not sync to the client from here.
+     * By default, this defers to setMultiBlockPartData()
+     * @param data sets the multi-block data to this object
+     */
+    default void setMultiBlockPartDataBulk(T data) {
+        this.setMultiBlockPartData(data);
+    }
+
     /**
      * @return the multi-block data for this component
      */
@@ -0,0 +1,205 @@
+package com.infinityraider.infinitylib.block.multiblock;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.util.math.BlockPos;
+
+/**
+ * Disjoint-set (union-find) over the positions of multi-block components in a single world.
+ * Positions are stored in their long-packed form (BlockPos.toLong()).
+ * Each set keeps track of its bounding box and member count, which allows to check if a set of connected components
+ * forms a complete cuboid in constant time.
+ *
+ * Finds use path halving and unions are by size, making both operations amortized near-constant time.
+ * Not thread safe, each world should have its own instance which is only accessed from that world's thread.
+ */
+public class MultiBlockDisjointSet {
+    private final Long2ObjectMap<Node> nodes;
+
+    public MultiBlockDisjointSet() {
+        this.nodes = new Long2ObjectOpenHashMap<>();
+    }
+
+    public boolean contains(long pos) {
+        return this.nodes.containsKey(pos);
+    }
+
+    public int nodeCount() {
+        return this.nodes.size();
+    }
+
+    /**
+     * Adds a position as a new singleton set, does nothing if the position is already present
+     * @param pos the long-packed position
+     */
+    public void add(long pos) {
+        if(!this.nodes.containsKey(pos)) {
+            this.nodes.put(pos, new Node(pos));
+        }
+    }
+
+    /**
+     * Finds the root of the set containing a position
+     * @param pos the long-packed position
+     * @return the root node, or null if the position is not present
+     */
+    public Node find(long pos) {
+        Node node = this.nodes.get(pos);
+        return node == null ? null : node.root();
+    }
+
+    /**
+     * Merges the sets containing two positions, both positions must be present
+     * @param a the first long-packed position
+     * @param b the second long-packed position
+     * @return the root of the merged set
+     */
+    public Node union(long a, long b) {
+        Node rootA = this.find(a);
+        Node rootB = this.find(b);
+        if(rootA == null || rootB == null) {
+            throw new IllegalArgumentException("Can not merge sets for positions which are not present");
+        }
+        if(rootA == rootB) {
+            return rootA;
+        }
+        // Union by size: the smallest set is attached to the largest
+        if(rootA.count() < rootB.count()) {
+            Node temp = rootA;
+            rootA = rootB;
+            rootB = temp;
+        }
+        rootA.absorb(rootB);
+        return rootA;
+    }
+
+    /**
+     * Removes the entire set containing a position
+     * @param pos the long-packed position
+     * @return the members of the removed set, empty if the position was not present
+     */
+    public LongList removeSet(long pos) {
+        Node root = this.find(pos);
+        if(root == null) {
+            return new LongArrayList();
+        }
+        LongList members = root.members;
+        for(int i = 0; i < members.size(); i++) {
+            this.nodes.remove(members.getLong(i));
+        }
+        return members;
+    }
+
+    /**
+     * @param chunkX the x-coordinate of the chunk
+     * @param chunkZ the z-coordinate of the chunk
+     * @return the long-packed positions which are present within the chunk
+     */
+    public LongList getPositionsInChunk(int chunkX, int chunkZ) {
+        LongList positions = new LongArrayList();
+        LongIterator iterator = this.nodes.keySet().iterator();
+        while(iterator.hasNext()) {
+            long pos = iterator.nextLong();
+            if((BlockPos.unpackX(pos) >> 4) == chunkX && (BlockPos.unpackZ(pos) >> 4) == chunkZ) {
+                positions.add(pos);
+            }
+        }
+        return positions;
+    }
+
+    public void clear() {
+        this.nodes.clear();
+    }
+
+    public static final class Node {
+        private final long pos;
+        private Node parent;
+
+        // Only valid while this node is a root
+        private LongList members;
+        private int minX;
+        private int minY;
+        private int minZ;
+        private int maxX;
+        private int maxY;
+        private int maxZ;
+
+        private Node(long pos) {
+            this.pos = pos;
+            this.parent = this;
+            this.members = new LongArrayList(1);
+            this.members.add(pos);
+            this.minX = this.maxX = BlockPos.unpackX(pos);
+            this.minY = this.maxY = BlockPos.unpackY(pos);
+            this.minZ = this.maxZ = BlockPos.unpackZ(pos);
+        }
+
+        private Node root() {
+            Node node = this;
+            while(node.parent != node) {
+                // path halving
+                node.parent = node.parent.parent;
+                node = node.parent;
+            }
+            return node;
+        }
+
+        private void absorb(Node other) {
+            other.parent = this;
+            this.members.addAll(other.members);
+            other.members = null;
+            this.minX = Math.min(this.minX, other.minX);
+            this.minY = Math.min(this.minY, other.minY);
+            this.minZ = Math.min(this.minZ, other.minZ);
+            this.maxX = Math.max(this.maxX, other.maxX);
+            this.maxY = Math.max(this.maxY, other.maxY);
+            this.maxZ = Math.max(this.maxZ, other.maxZ);
+        }
+
+        public long getPos() {
+            return this.pos;
+        }
+
+        public int count() {
+            return this.members.size();
+        }
+
+        public LongList getMembers() {
+            return this.members;
+        }
+
+        public int minX() {
+            return this.minX;
+        }
+
+        public int minY() {
+            return this.minY;
+        }
+
+        public int minZ() {
+            return this.minZ;
+        }
+
+        public int sizeX() {
+            return this.maxX - this.minX + 1;
+        }
+
+        public int sizeY() {
+            return this.maxY - this.minY + 1;
+        }
+
+        public int sizeZ() {
+            return this.maxZ - this.minZ + 1;
+        }
+
+        /**
+         * @return true if the members of this set completely fill its bounding box
+         */
+        public boolean isCuboid() {
+            return ((long) this.sizeX()) * this.sizeY() * this.sizeZ() == this.count();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.infinityraider.infinitylib.block.multiblock;
+
+import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Forwards chunk loads to the MultiBlockStructureIndex of the world, and runs deferred structure validation
+ * at the end of each world tick, once all chunks of a structure have been loaded.
+ * Chunk unloads are forwarded to every MultiBlockManagerIncremental, so they can drop the components of the chunk.
+ */
+public class MultiBlockIndexHandler {
+    private static final MultiBlockIndexHandler INSTANCE = new MultiBlockIndexHandler();
+
+    public static MultiBlockIndexHandler getInstance() {
+        return INSTANCE;
+    }
+
+    private final Set<MultiBlockManagerIncremental> managers;
+
+    private MultiBlockIndexHandler() {
+        this.managers = Collections.newSetFromMap(Collections.synchronizedMap(new WeakHashMap<>()));
+    }
+
+    void addManager(MultiBlockManagerIncremental manager) {
+        this.managers.add(manager);
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onChunkLoad(ChunkEvent.Load event) {
+        if(event.getWorld() instanceof ServerWorld) {
+            MultiBlockStructureIndex.get((ServerWorld) event.getWorld()).ifPresent(index -> index.onChunkLoaded(event.getChunk().getPos()));
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onChunkUnload(ChunkEvent.Unload event) {
+        if(event.getWorld() instanceof World) {
+            World world = (World) event.getWorld();
+            synchronized (this.managers) {
+                this.managers.forEach(manager -> manager.onChunkUnloaded(world, event.getChunk().getPos()));
+            }
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onWorldTick(TickEvent.WorldTickEvent event) {
+        if(event.phase == TickEvent.Phase.END && event.world instanceof ServerWorld) {
+            MultiBlockStructureIndex.get(event.world).ifPresent(index -> index.validatePending(event.world));
+        }
+    }
+}
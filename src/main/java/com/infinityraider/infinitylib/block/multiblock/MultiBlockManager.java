@@ -1,12 +1,16 @@
 package com.infinityraider.infinitylib.block.multiblock;
 
 import com.infinityraider.infinitylib.InfinityLib;
+import com.infinityraider.infinitylib.network.MessageSyncMultiBlock;
 import com.infinityraider.infinitylib.utility.CoordinateIterator;
+import it.unimi.dsi.fastutil.longs.LongIterator;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.Direction;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 
+import java.util.Optional;
+
 public class MultiBlockManager implements IMultiBlockManager<MultiBlockPartData> {
     
 	public static final MultiBlockManager INSTANCE = new MultiBlockManager();
@@ -34,6 +38,16 @@ public class MultiBlockManager implements IMultiBlockManager<MultiBlockPartData>
     @Override
     public void onBlockBroken(World world, BlockPos pos, IMultiBlockComponent<? extends IMultiBlockManager<MultiBlockPartData>, MultiBlockPartData> component) {
         component.getMainComponent().preMultiBlockBreak();
+        Optional<MultiBlockStructureIndex> index = MultiBlockStructureIndex.get(world);
+        Optional<MultiBlockStructureIndex.Structure> structure = index.flatMap(i -> i.getStructure(pos.toLong()));
+        if (structure.isPresent()) {
+            // The index knows the exact members, only those have to be reset
+            MultiBlockStructureIndex.Structure broken = structure.get();
+            index.get().remove(broken.getId());
+            breakMembers(world, broken.memberIterator());
+            syncStructure(world, broken.getOrigin(), broken.sizeX(), broken.sizeY(), broken.sizeZ(), false);
+            return;
+        }
         IMultiBlockPartData data = component.getMultiBlockData();
         breakAllMultiBlocksInRange(world, pos.getX() - data.posX(), pos.getY() - data.posY(), pos.getZ() - data.posZ(), pos.getX() + data.sizeX(), pos.getY() + data.sizeY(), pos.getZ() + data.sizeZ());
     }
@@ -49,21 +63,54 @@ public class MultiBlockManager implements IMultiBlockManager<MultiBlockPartData>
 		
         IMultiBlockComponent component = (IMultiBlockComponent) world.getTileEntity(pos);
 		component.preMultiBlockCreation(sizeX, sizeY, sizeZ);
-		
+
+        BlockPos.Mutable cursor = new BlockPos.Mutable();
         for (int x = 0; x < sizeX; x++) {
             for (int y = 0; y < sizeY; y++) {
                 for (int z = 0; z < sizeZ; z++) {
-                    component = (IMultiBlockComponent) world.getTileEntity(pos.add(x, y, z));
-                    component.setMultiBlockPartData(new MultiBlockPartData(x, y, z, sizeX, sizeY, sizeZ));
+                    cursor.setPos(pos.getX() + x, pos.getY() + y, pos.getZ() + z);
+                    TileEntity te = world.getTileEntity(cursor);
+                    ((IMultiBlockComponent) te).setMultiBlockPartDataBulk(new MultiBlockPartData(x, y, z, sizeX, sizeY, sizeZ));
+                    te.markDirty();
                 }
             }
         }
+        syncStructure(world, pos, sizeX, sizeY, sizeZ, true);
+        MultiBlockStructureIndex.get(world).ifPresent(index -> index.register(pos, sizeX, sizeY, sizeZ));
 		
 		component = (IMultiBlockComponent) world.getTileEntity(pos);
         component.postMultiBlockCreation();
 		
     }
 
+    /**
+     * Resets the components at the given positions, positions without a component are skipped
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    protected void breakMembers(World world, LongIterator members) {
+        BlockPos.Mutable cursor = new BlockPos.Mutable();
+        while (members.hasNext()) {
+            long member = members.nextLong();
+            cursor.setPos(BlockPos.unpackX(member), BlockPos.unpackY(member), BlockPos.unpackZ(member));
+            TileEntity te = world.getTileEntity(cursor);
+            if (te instanceof IMultiBlockComponent) {
+                IMultiBlockComponent component = (IMultiBlockComponent) te;
+                component.setMultiBlockPartDataBulk(new MultiBlockPartData(0, 0, 0, 1, 1, 1));
+                te.markDirty();
+                component.postMultiBlockBreak();
+            }
+        }
+    }
+
+    /**
+     * Sends a single message to the clients to update all components of a structure
+     */
+    protected void syncStructure(World world, BlockPos origin, int sizeX, int sizeY, int sizeZ, boolean formed) {
+        if (!world.isRemote) {
+            new MessageSyncMultiBlock(origin, sizeX, sizeY, sizeZ, formed).sendToAllAround(world);
+        }
+    }
+
     private boolean canCheckForMultiBlock(IMultiBlockComponent component) {
         return component.getMultiBlockData().size() > 1;
     }
@@ -155,20 +202,22 @@ public class MultiBlockManager implements IMultiBlockManager<MultiBlockPartData>
 
     @SuppressWarnings("unchecked")
     private void breakAllMultiBlocksInRange(World world, int xMin, int yMin, int zMin, int xMax, int yMax, int zMax) {
-        BlockPos pos;
+        BlockPos.Mutable pos = new BlockPos.Mutable();
         for (int x=xMin; x<xMax;x++) {
             for (int y=yMin;y<yMax;y++) {
                 for (int z=zMin;z<zMax;z++) {
-                    pos = new BlockPos(x, y, z);
+                    pos.setPos(x, y, z);
                     TileEntity te = world.getTileEntity(pos);
                     if((te == null) || !(te instanceof IMultiBlockComponent)) {
                         continue;
                     }
                     IMultiBlockComponent component = (IMultiBlockComponent) te;
-                    component.setMultiBlockPartData(new MultiBlockPartData(0, 0, 0, 1, 1, 1));
+                    component.setMultiBlockPartDataBulk(new MultiBlockPartData(0, 0, 0, 1, 1, 1));
+                    te.markDirty();
                     component.postMultiBlockBreak();
                 }
             }
         }
+        syncStructure(world, new BlockPos(xMin, yMin, zMin), xMax - xMin, yMax - yMin, zMax - zMin, false);
     }
 }
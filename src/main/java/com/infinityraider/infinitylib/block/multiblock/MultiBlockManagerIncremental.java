@@ -0,0 +1,227 @@
+package com.infinityraider.infinitylib.block.multiblock;
+
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.Direction;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
+
+/**
+ * Multi-block manager which tracks connected components incrementally with a disjoint-set per world,
+ * instead of rescanning the surroundings of every placed component.
+ *
+ * Placing a component only inspects its six neighbours and merges their sets, the cached bounding box and member count
+ * of the resulting set then tell if the structure is a complete cuboid.
+ * Unlike MultiBlockManager, a structure is only formed once all connected valid components fill their bounding box.
+ *
+ * Components which were loaded from disk are seeded lazily the first time a neighbour is placed, the components of
+ * a chunk are dropped from the sets when it is unloaded. As components can also disappear without being broken,
+ * all members of a set are verified before a structure is formed from it.
+ * On the server, the MultiBlockStructureIndex in which MultiBlockManager registers formed structures is also used
+ * to seed existing structures.
+ */
+public class MultiBlockManagerIncremental extends MultiBlockManager {
+    public static final MultiBlockManagerIncremental INSTANCE = new MultiBlockManagerIncremental();
+
+    private final Map<World, MultiBlockDisjointSet> sets;
+
+    public MultiBlockManagerIncremental() {
+        super();
+        this.sets = Collections.synchronizedMap(new WeakHashMap<>());
+        MultiBlockIndexHandler.getInstance().addManager(this);
+    }
+
+    protected MultiBlockDisjointSet getDisjointSet(World world) {
+        return this.sets.computeIfAbsent(world, w -> new MultiBlockDisjointSet());
+    }
+
+    @Override
+    public void onBlockPlaced(World world, BlockPos pos, IMultiBlockComponent component) {
+        MultiBlockDisjointSet set = this.getDisjointSet(world);
+        long key = pos.toLong();
+        set.add(key);
+        BlockPos.Mutable neighbour = new BlockPos.Mutable();
+        for (Direction dir : Direction.values()) {
+            neighbour.setPos(pos).move(dir);
+            TileEntity te = world.getTileEntity(neighbour);
+            if (!(te instanceof IMultiBlockComponent) || !component.isValidComponent((IMultiBlockComponent) te)) {
+                continue;
+            }
+            long neighbourKey = neighbour.toLong();
+            if (!set.contains(neighbourKey)) {
+                this.seed(world, set, neighbour, (IMultiBlockComponent) te);
+            }
+            set.union(key, neighbourKey);
+        }
+        MultiBlockDisjointSet.Node root = set.find(key);
+        if (root.count() > 1 && root.isCuboid() && !this.isFormed(pos, component, root)) {
+            // Components may have disappeared without being broken (commands, pistons, world edits), verify them first
+            if (this.pruneStale(world, set, key, component)) {
+                root = set.find(key);
+                if (root.count() <= 1 || !root.isCuboid()) {
+                    return;
+                }
+            }
+            this.createMultiBlock(world, new BlockPos(root.minX(), root.minY(), root.minZ()), root.sizeX(), root.sizeY(), root.sizeZ());
+        }
+    }
+
+    @Override
+    public void onBlockBroken(World world, BlockPos pos, IMultiBlockComponent<? extends IMultiBlockManager<MultiBlockPartData>, MultiBlockPartData> component) {
+        MultiBlockDisjointSet set = this.getDisjointSet(world);
+        long key = pos.toLong();
+        LongList members = set.removeSet(key);
+        super.onBlockBroken(world, pos, component);
+        // Rebuild the sets for the remaining components, these are known to be mutually valid so only adjacency matters
+        LongSet remaining = new LongOpenHashSet(members);
+        remaining.remove(key);
+        this.rebuild(set, remaining);
+    }
+
+    /**
+     * Removes the tracked components of a chunk which is being unloaded, the sets they belonged to are split accordingly.
+     * The components are seeded again once the chunk is loaded and a neighbour is placed.
+     * @param world the world
+     * @param chunk the chunk
+     */
+    public void onChunkUnloaded(World world, ChunkPos chunk) {
+        MultiBlockDisjointSet set = this.sets.get(world);
+        if (set == null) {
+            return;
+        }
+        LongList unloaded = set.getPositionsInChunk(chunk.x, chunk.z);
+        LongSet remaining = new LongOpenHashSet();
+        for (int i = 0; i < unloaded.size(); i++) {
+            long key = unloaded.getLong(i);
+            if (set.contains(key)) {
+                remaining.addAll(set.removeSet(key));
+            }
+        }
+        remaining.removeAll(unloaded);
+        this.rebuild(set, remaining);
+    }
+
+    /**
+     * Removes the members of the set containing a position whose tile is no longer a valid component, and rebuilds the set
+     * from the remaining members
+     * @return true if stale members were found
+     */
+    @SuppressWarnings("rawtypes")
+    protected boolean pruneStale(World world, MultiBlockDisjointSet set, long key, IMultiBlockComponent<?, ?> component) {
+        LongList members = set.find(key).getMembers();
+        LongSet valid = new LongOpenHashSet(members.size());
+        BlockPos.Mutable cursor = new BlockPos.Mutable();
+        for (int i = 0; i < members.size(); i++) {
+            long member = members.getLong(i);
+            cursor.setPos(BlockPos.unpackX(member), BlockPos.unpackY(member), BlockPos.unpackZ(member));
+            if (member == key) {
+                valid.add(member);
+                continue;
+            }
+            if (!world.isBlockLoaded(cursor)) {
+                continue;
+            }
+            TileEntity te = world.getTileEntity(cursor);
+            if (te instanceof IMultiBlockComponent && component.isValidComponent((IMultiBlockComponent) te)) {
+                valid.add(member);
+            }
+        }
+        if (valid.size() == members.size()) {
+            return false;
+        }
+        set.removeSet(key);
+        this.rebuild(set, valid);
+        return true;
+    }
+
+    /**
+     * Adds mutually valid components as new sets and merges the adjacent ones
+     */
+    protected void rebuild(MultiBlockDisjointSet set, LongSet remaining) {
+        LongIterator iterator = remaining.iterator();
+        while (iterator.hasNext()) {
+            set.add(iterator.nextLong());
+        }
+        BlockPos.Mutable cursor = new BlockPos.Mutable();
+        iterator = remaining.iterator();
+        while (iterator.hasNext()) {
+            long member = iterator.nextLong();
+            for (Direction dir : Direction.values()) {
+                cursor.setPos(BlockPos.unpackX(member), BlockPos.unpackY(member), BlockPos.unpackZ(member)).move(dir);
+                long neighbour = cursor.toLong();
+                if (remaining.contains(neighbour)) {
+                    set.union(member, neighbour);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a component which is not yet tracked, together with the rest of the connected valid components it belongs to.
+     * Members of an indexed structure are added without inspecting their tiles, after which all untracked components
+     * adjacent to the seeded set are flood-filled, so loose components loaded from disk are tracked as well.
+     */
+    @SuppressWarnings("rawtypes")
+    protected void seed(World world, MultiBlockDisjointSet set, BlockPos pos, IMultiBlockComponent<?, ?> component) {
+        long key = pos.toLong();
+        set.add(key);
+        LongArrayFIFOQueue frontier = new LongArrayFIFOQueue();
+        frontier.enqueue(key);
+        Optional<MultiBlockStructureIndex.Structure> structure = MultiBlockStructureIndex.get(world).flatMap(index -> index.getStructure(key));
+        if (structure.isPresent()) {
+            LongIterator members = structure.get().memberIterator();
+            while (members.hasNext()) {
+                long member = members.nextLong();
+                if (!set.contains(member)) {
+                    set.add(member);
+                    frontier.enqueue(member);
+                }
+                set.union(key, member);
+            }
+        }
+        BlockPos.Mutable cursor = new BlockPos.Mutable();
+        while (!frontier.isEmpty()) {
+            long current = frontier.dequeueLong();
+            for (Direction dir : Direction.values()) {
+                cursor.setPos(BlockPos.unpackX(current), BlockPos.unpackY(current), BlockPos.unpackZ(current)).move(dir);
+                if (!world.isBlockLoaded(cursor)) {
+                    // Components in unloaded chunks are seeded once they are loaded and a neighbour is placed
+                    continue;
+                }
+                long neighbour = cursor.toLong();
+                boolean tracked = set.contains(neighbour);
+                if (tracked && set.find(neighbour) == set.find(key)) {
+                    continue;
+                }
+                TileEntity te = world.getTileEntity(cursor);
+                if (!(te instanceof IMultiBlockComponent) || !component.isValidComponent((IMultiBlockComponent) te)) {
+                    continue;
+                }
+                if (!tracked) {
+                    set.add(neighbour);
+                    frontier.enqueue(neighbour);
+                }
+                set.union(key, neighbour);
+            }
+        }
+    }
+
+    private boolean isFormed(BlockPos pos, IMultiBlockComponent<?, ?> component, MultiBlockDisjointSet.Node root) {
+        IMultiBlockPartData data = component.getMultiBlockData();
+        return data != null
+                && data.sizeX() == root.sizeX() && data.sizeY() == root.sizeY() && data.sizeZ() == root.sizeZ()
+                && pos.getX() - data.posX() == root.minX()
+                && pos.getY() - data.posY() == root.minY()
+                && pos.getZ() - data.posZ() == root.minZ();
+    }
+}
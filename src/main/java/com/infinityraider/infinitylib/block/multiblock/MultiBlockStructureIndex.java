@@ -0,0 +1,376 @@
+package com.infinityraider.infinitylib.block.multiblock;
+
+import com.infinityraider.infinitylib.network.MessageSyncMultiBlock;
+import com.infinityraider.infinitylib.reference.Names;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.nbt.CompoundNBT;
+import net.minecraft.nbt.ListNBT;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.AbstractChunkProvider;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraft.world.storage.WorldSavedData;
+import net.minecraftforge.common.util.Constants;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Optional;
+import java.util.function.LongConsumer;
+
+/**
+ * Per-world registry of formed multi-block structures, saved to disk alongside the world.
+ * Maps structure ids to their bounding box and member positions, and every long-packed member position to its structure id,
+ * allowing membership queries in constant time without touching any tile entities.
+ *
+ * Structures read from disk are validated against the world lazily: validation is deferred until all chunks spanned
+ * by the structure are loaded, structures which no longer match their tiles are broken and dropped from the index.
+ */
+public class MultiBlockStructureIndex extends WorldSavedData {
+    private static final String NAME = "infinitylib_multiblocks";
+
+    private static final int NONE = -1;
+
+    /**
+     * Fetches the index for a world, only available on the server
+     * @param world the world
+     * @return optional holding the index, empty on the client
+     */
+    public static Optional<MultiBlockStructureIndex> get(World world) {
+        if (world instanceof ServerWorld) {
+            return Optional.of(((ServerWorld) world).getSavedData().getOrCreate(MultiBlockStructureIndex::new, NAME));
+        }
+        return Optional.empty();
+    }
+
+    private final Int2ObjectMap<Structure> structures;
+    private final Long2IntMap membership;
+    private final Long2ObjectMap<IntSet> chunks;
+    private final IntSet pendingValidation;
+    private final IntSet readyForValidation;
+    private int nextId;
+
+    public MultiBlockStructureIndex() {
+        super(NAME);
+        this.structures = new Int2ObjectOpenHashMap<>();
+        this.membership = new Long2IntOpenHashMap();
+        this.membership.defaultReturnValue(NONE);
+        this.chunks = new Long2ObjectOpenHashMap<>();
+        this.pendingValidation = new IntOpenHashSet();
+        this.readyForValidation = new IntOpenHashSet();
+    }
+
+    /**
+     * @param pos the position
+     * @return the structure the position is a member of, or empty if it is not part of an indexed structure
+     */
+    public Optional<Structure> getStructure(BlockPos pos) {
+        return this.getStructure(pos.toLong());
+    }
+
+    public Optional<Structure> getStructure(long pos) {
+        int id = this.membership.get(pos);
+        return id == NONE ? Optional.empty() : Optional.ofNullable(this.structures.get(id));
+    }
+
+    public Optional<Structure> getStructure(int id) {
+        return Optional.ofNullable(this.structures.get(id));
+    }
+
+    public boolean isMember(BlockPos pos) {
+        return this.membership.containsKey(pos.toLong());
+    }
+
+    public int structureCount() {
+        return this.structures.size();
+    }
+
+    /**
+     * Registers a new cuboid structure, any indexed structures overlapping its members are removed from the index
+     * @return the newly registered structure
+     */
+    public Structure register(BlockPos origin, int sizeX, int sizeY, int sizeZ) {
+        LongSet members = new LongOpenHashSet(sizeX * sizeY * sizeZ);
+        for (int x = 0; x < sizeX; x++) {
+            for (int y = 0; y < sizeY; y++) {
+                for (int z = 0; z < sizeZ; z++) {
+                    members.add(BlockPos.pack(origin.getX() + x, origin.getY() + y, origin.getZ() + z));
+                }
+            }
+        }
+        return this.register(origin, sizeX, sizeY, sizeZ, members);
+    }
+
+    public Structure register(BlockPos origin, int sizeX, int sizeY, int sizeZ, LongSet members) {
+        LongIterator iterator = members.iterator();
+        while (iterator.hasNext()) {
+            int previous = this.membership.get(iterator.nextLong());
+            if (previous != NONE) {
+                this.remove(previous);
+            }
+        }
+        Structure structure = new Structure(this.nextId++, origin.getX(), origin.getY(), origin.getZ(), sizeX, sizeY, sizeZ, members);
+        this.add(structure);
+        this.markDirty();
+        return structure;
+    }
+
+    /**
+     * Removes a structure from the index, does not modify the world
+     * @param id the id of the structure
+     * @return the removed structure, or null if there was no structure with that id
+     */
+    @Nullable
+    public Structure remove(int id) {
+        Structure structure = this.structures.remove(id);
+        if (structure == null) {
+            return null;
+        }
+        LongIterator iterator = structure.members.iterator();
+        while (iterator.hasNext()) {
+            this.membership.remove(iterator.nextLong());
+        }
+        structure.forEachChunk(chunk -> {
+            IntSet ids = this.chunks.get(chunk);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    this.chunks.remove(chunk);
+                }
+            }
+        });
+        this.pendingValidation.remove(id);
+        this.readyForValidation.remove(id);
+        this.markDirty();
+        return structure;
+    }
+
+    private void add(Structure structure) {
+        this.structures.put(structure.getId(), structure);
+        LongIterator iterator = structure.members.iterator();
+        while (iterator.hasNext()) {
+            this.membership.put(iterator.nextLong(), structure.getId());
+        }
+        structure.forEachChunk(chunk -> {
+            IntSet ids = this.chunks.get(chunk);
+            if (ids == null) {
+                ids = new IntOpenHashSet();
+                this.chunks.put(chunk, ids);
+            }
+            ids.add(structure.getId());
+        });
+    }
+
+    /**
+     * Called when a chunk is loaded, structures awaiting validation in that chunk are queued to be checked
+     */
+    void onChunkLoaded(ChunkPos pos) {
+        IntSet ids = this.chunks.get(pos.asLong());
+        if (ids == null || this.pendingValidation.isEmpty()) {
+            return;
+        }
+        IntIterator iterator = ids.iterator();
+        while (iterator.hasNext()) {
+            int id = iterator.nextInt();
+            if (this.pendingValidation.contains(id)) {
+                this.readyForValidation.add(id);
+            }
+        }
+    }
+
+    /**
+     * Validates queued structures whose chunks are now all loaded
+     */
+    void validatePending(World world) {
+        if (this.readyForValidation.isEmpty()) {
+            return;
+        }
+        IntIterator iterator = new IntOpenHashSet(this.readyForValidation).iterator();
+        while (iterator.hasNext()) {
+            Structure structure = this.structures.get(iterator.nextInt());
+            if (structure == null || !structure.areAllChunksLoaded(world)) {
+                continue;
+            }
+            this.readyForValidation.remove(structure.getId());
+            this.pendingValidation.remove(structure.getId());
+            if (!structure.isValid(world)) {
+                this.remove(structure.getId());
+                structure.breakStructure(world);
+            }
+        }
+    }
+
+    @Override
+    public void read(@Nonnull CompoundNBT tag) {
+        this.structures.clear();
+        this.membership.clear();
+        this.chunks.clear();
+        this.pendingValidation.clear();
+        this.readyForValidation.clear();
+        this.nextId = tag.getInt(Names.NBT.COUNT);
+        ListNBT list = tag.getList(Names.NBT.LIST, Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < list.size(); i++) {
+            Structure structure = Structure.readFromNBT(list.getCompound(i));
+            this.add(structure);
+            // Structures read from disk might have been altered while unloaded, validate them once their chunks load
+            this.pendingValidation.add(structure.getId());
+        }
+    }
+
+    @Nonnull
+    @Override
+    public CompoundNBT write(@Nonnull CompoundNBT tag) {
+        tag.putInt(Names.NBT.COUNT, this.nextId);
+        ListNBT list = new ListNBT();
+        this.structures.values().forEach(structure -> list.add(structure.writeToNBT(new CompoundNBT())));
+        tag.put(Names.NBT.LIST, list);
+        return tag;
+    }
+
+    public static final class Structure {
+        private final int id;
+        private final int x;
+        private final int y;
+        private final int z;
+        private final int sizeX;
+        private final int sizeY;
+        private final int sizeZ;
+        private final LongSet members;
+
+        private Structure(int id, int x, int y, int z, int sizeX, int sizeY, int sizeZ, LongSet members) {
+            this.id = id;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+            this.sizeZ = sizeZ;
+            this.members = members;
+        }
+
+        public int getId() {
+            return this.id;
+        }
+
+        public BlockPos getOrigin() {
+            return new BlockPos(this.x, this.y, this.z);
+        }
+
+        public int sizeX() {
+            return this.sizeX;
+        }
+
+        public int sizeY() {
+            return this.sizeY;
+        }
+
+        public int sizeZ() {
+            return this.sizeZ;
+        }
+
+        public int memberCount() {
+            return this.members.size();
+        }
+
+        public boolean isMember(BlockPos pos) {
+            return this.members.contains(pos.toLong());
+        }
+
+        /**
+         * @return iterator over the long-packed positions of all members
+         */
+        public LongIterator memberIterator() {
+            return this.members.iterator();
+        }
+
+        public boolean areAllChunksLoaded(World world) {
+            AbstractChunkProvider provider = world.getChunkProvider();
+            for (int cx = this.x >> 4; cx <= (this.x + this.sizeX - 1) >> 4; cx++) {
+                for (int cz = this.z >> 4; cz <= (this.z + this.sizeZ - 1) >> 4; cz++) {
+                    if (!provider.chunkExists(cx, cz)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void forEachChunk(LongConsumer consumer) {
+            for (int cx = this.x >> 4; cx <= (this.x + this.sizeX - 1) >> 4; cx++) {
+                for (int cz = this.z >> 4; cz <= (this.z + this.sizeZ - 1) >> 4; cz++) {
+                    consumer.accept(ChunkPos.asLong(cx, cz));
+                }
+            }
+        }
+
+        @SuppressWarnings("rawtypes")
+        private boolean isValid(World world) {
+            BlockPos.Mutable pos = new BlockPos.Mutable();
+            LongIterator iterator = this.members.iterator();
+            while (iterator.hasNext()) {
+                long member = iterator.nextLong();
+                pos.setPos(BlockPos.unpackX(member), BlockPos.unpackY(member), BlockPos.unpackZ(member));
+                TileEntity tile = world.getTileEntity(pos);
+                if (!(tile instanceof IMultiBlockComponent)) {
+                    return false;
+                }
+                IMultiBlockPartData data = ((IMultiBlockComponent) tile).getMultiBlockData();
+                if (data == null || data.sizeX() != this.sizeX || data.sizeY() != this.sizeY || data.sizeZ() != this.sizeZ
+                        || pos.getX() - data.posX() != this.x || pos.getY() - data.posY() != this.y || pos.getZ() - data.posZ() != this.z) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        private void breakStructure(World world) {
+            BlockPos.Mutable pos = new BlockPos.Mutable();
+            LongIterator iterator = this.members.iterator();
+            while (iterator.hasNext()) {
+                long member = iterator.nextLong();
+                pos.setPos(BlockPos.unpackX(member), BlockPos.unpackY(member), BlockPos.unpackZ(member));
+                TileEntity tile = world.getTileEntity(pos);
+                if (tile instanceof IMultiBlockComponent) {
+                    IMultiBlockComponent component = (IMultiBlockComponent) tile;
+                    component.setMultiBlockPartDataBulk(new MultiBlockPartData(0, 0, 0, 1, 1, 1));
+                    tile.markDirty();
+                    component.postMultiBlockBreak();
+                }
+            }
+            new MessageSyncMultiBlock(this.getOrigin(), this.sizeX, this.sizeY, this.sizeZ, false).sendToAllAround(world);
+        }
+
+        private CompoundNBT writeToNBT(CompoundNBT tag) {
+            tag.putInt(Names.NBT.MULTI, this.id);
+            tag.putInt(Names.NBT.X1, this.x);
+            tag.putInt(Names.NBT.Y1, this.y);
+            tag.putInt(Names.NBT.Z1, this.z);
+            tag.putInt(Names.NBT.X2, this.sizeX);
+            tag.putInt(Names.NBT.Y2, this.sizeY);
+            tag.putInt(Names.NBT.Z2, this.sizeZ);
+            tag.putLongArray(Names.NBT.LIST, this.members.toLongArray());
+            return tag;
+        }
+
+        private static Structure readFromNBT(CompoundNBT tag) {
+            return new Structure(
+                    tag.getInt(Names.NBT.MULTI),
+                    tag.getInt(Names.NBT.X1), tag.getInt(Names.NBT.Y1), tag.getInt(Names.NBT.Z1),
+                    tag.getInt(Names.NBT.X2), tag.getInt(Names.NBT.Y2), tag.getInt(Names.NBT.Z2),
+                    new LongOpenHashSet(tag.getLongArray(Names.NBT.LIST)));
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.infinityraider.infinitylib.block.multiblock;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.Mirror;
+import net.minecraft.util.Rotation;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IBlockReader;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Shaped multi-block structure definition, for structures which are not solid cuboids (hollow frames, layered reactors, ...).
+ *
+ * Templates are defined as layers of pattern strings (bottom to top, rows along z from north to south, characters along x
+ * from west to east) together with a palette mapping each character to a block state predicate. A space matches anything.
+ * On build, the pattern is compiled into flat arrays of offsets and predicates for every allowed rotation and mirror variant.
+ * The cells of each variant are ordered by selectivity so that mismatches are detected as early as possible.
+ *
+ * Each variant also keeps an anchor index from palette entry to cells, when a single block changes,
+ * only the cells whose predicate accepts the new block are considered as candidate positions for that block.
+ */
+public final class MultiBlockTemplate {
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final int cellCount;
+    private final List<Variant> variants;
+
+    private MultiBlockTemplate(int cellCount, List<Variant> variants) {
+        this.cellCount = cellCount;
+        this.variants = variants;
+    }
+
+    /**
+     * @return the number of non-empty cells in the template
+     */
+    public int getCellCount() {
+        return this.cellCount;
+    }
+
+    public List<Variant> getVariants() {
+        return this.variants;
+    }
+
+    /**
+     * Checks if the template is present in the world, for any variant, at the given origin
+     * @param world the world
+     * @param origin the position of the template's (0, 0, 0) cell
+     * @return the match, or empty if no variant matches
+     */
+    public Optional<Match> matchAt(IBlockReader world, BlockPos origin) {
+        BlockPos.Mutable cursor = new BlockPos.Mutable();
+        for (Variant variant : this.variants) {
+            if (variant.matches(world, origin.getX(), origin.getY(), origin.getZ(), cursor)) {
+                return Optional.of(new Match(this, variant, origin));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Checks if a change to a single block completed the template anywhere.
+     * Only the cells whose predicate accepts the changed block are tested as candidate positions for it.
+     * @param world the world
+     * @param changed the position of the changed block
+     * @return the first match containing the changed block, or empty if there is none
+     */
+    public Optional<Match> matchAround(IBlockReader world, BlockPos changed) {
+        BlockState state = world.getBlockState(changed);
+        BlockPos.Mutable cursor = new BlockPos.Mutable();
+        for (Variant variant : this.variants) {
+            BlockState local = variant.toLocal(state);
+            for (int entry = 0; entry < variant.anchors.length; entry++) {
+                if (!variant.palette[entry].test(local)) {
+                    continue;
+                }
+                for (int cell : variant.anchors[entry]) {
+                    int x = changed.getX() - variant.dx[cell];
+                    int y = changed.getY() - variant.dy[cell];
+                    int z = changed.getZ() - variant.dz[cell];
+                    if (variant.matches(world, x, y, z, cursor)) {
+                        return Optional.of(new Match(this, variant, new BlockPos(x, y, z)));
+                    }
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * A compiled rotation and mirror variant of a template
+     */
+    public static final class Variant {
+        private final Rotation rotation;
+        private final Mirror mirror;
+        private final Rotation inverse;
+
+        // Cells, ordered by selectivity
+        private final int[] dx;
+        private final int[] dy;
+        private final int[] dz;
+        private final Predicate<BlockState>[] predicates;
+
+        // Anchor index: palette entry -> cells using that entry
+        private final Predicate<BlockState>[] palette;
+        private final int[][] anchors;
+
+        private Variant(Rotation rotation, Mirror mirror, int[] dx, int[] dy, int[] dz, Predicate<BlockState>[] predicates,
+                        Predicate<BlockState>[] palette, int[][] anchors) {
+            this.rotation = rotation;
+            this.mirror = mirror;
+            this.inverse = rotation == Rotation.CLOCKWISE_90 ? Rotation.COUNTERCLOCKWISE_90
+                    : rotation == Rotation.COUNTERCLOCKWISE_90 ? Rotation.CLOCKWISE_90
+                    : rotation;
+            this.dx = dx;
+            this.dy = dy;
+            this.dz = dz;
+            this.predicates = predicates;
+            this.palette = palette;
+            this.anchors = anchors;
+        }
+
+        public Rotation getRotation() {
+            return this.rotation;
+        }
+
+        public Mirror getMirror() {
+            return this.mirror;
+        }
+
+        /**
+         * Converts a state in the world to the template's frame of reference, so that predicates for orientable blocks
+         * can be defined for the unrotated template
+         */
+        private BlockState toLocal(BlockState state) {
+            if (this.rotation != Rotation.NONE) {
+                state = state.rotate(this.inverse);
+            }
+            if (this.mirror != Mirror.NONE) {
+                state = state.mirror(this.mirror);
+            }
+            return state;
+        }
+
+        private boolean matches(IBlockReader world, int x, int y, int z, BlockPos.Mutable cursor) {
+            for (int i = 0; i < this.predicates.length; i++) {
+                cursor.setPos(x + this.dx[i], y + this.dy[i], z + this.dz[i]);
+                if (!this.predicates[i].test(this.toLocal(world.getBlockState(cursor)))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private BlockPos toWorld(BlockPos origin, int x, int y, int z) {
+            return transform(this.rotation, this.mirror, origin, x, y, z);
+        }
+
+        private static BlockPos transform(Rotation rotation, Mirror mirror, BlockPos origin, int x, int y, int z) {
+            if (mirror == Mirror.FRONT_BACK) {
+                x = -x;
+            }
+            switch (rotation) {
+                case CLOCKWISE_90:
+                    return origin.add(-z, y, x);
+                case CLOCKWISE_180:
+                    return origin.add(-x, y, -z);
+                case COUNTERCLOCKWISE_90:
+                    return origin.add(z, y, -x);
+                default:
+                    return origin.add(x, y, z);
+            }
+        }
+    }
+
+    /**
+     * A successful match of a template in the world
+     */
+    public static final class Match {
+        private final MultiBlockTemplate template;
+        private final Variant variant;
+        private final BlockPos origin;
+
+        private Match(MultiBlockTemplate template, Variant variant, BlockPos origin) {
+            this.template = template;
+            this.variant = variant;
+            this.origin = origin;
+        }
+
+        public MultiBlockTemplate getTemplate() {
+            return this.template;
+        }
+
+        public BlockPos getOrigin() {
+            return this.origin;
+        }
+
+        public Rotation getRotation() {
+            return this.variant.getRotation();
+        }
+
+        public Mirror getMirror() {
+            return this.variant.getMirror();
+        }
+
+        /**
+         * Converts template coordinates to a world position for this match
+         * @param x the x coordinate in the pattern
+         * @param y the layer in the pattern
+         * @param z the row in the pattern
+         * @return the world position
+         */
+        public BlockPos toWorld(int x, int y, int z) {
+            return this.variant.toWorld(this.origin, x, y, z);
+        }
+    }
+
+    public static final class Builder {
+        private final List<String[]> layers;
+        private final Map<Character, Predicate<BlockState>> palette;
+        private final Map<Character, Double> selectivity;
+        private boolean rotate;
+        private boolean mirror;
+
+        private Builder() {
+            this.layers = Lists.newArrayList();
+            this.palette = Maps.newHashMap();
+            this.selectivity = Maps.newHashMap();
+            this.rotate = true;
+            this.mirror = false;
+        }
+
+        /**
+         * Adds a layer on top of the previous layers
+         * @param rows the rows of the layer, from north to south
+         */
+        public Builder layer(String... rows) {
+            this.layers.add(rows);
+            return this;
+        }
+
+        public Builder where(char key, Block block) {
+            return this.where(key, state -> state.getBlock() == block);
+        }
+
+        public Builder where(char key, Predicate<BlockState> predicate) {
+            return this.where(key, predicate, -1);
+        }
+
+        /**
+         * Defines a palette entry
+         * @param key the character in the pattern
+         * @param predicate the predicate which must hold for the block state at every cell with this key
+         * @param selectivity estimated fraction of block states accepted by the predicate (lower is more selective),
+         *                    negative to estimate it from the pattern itself
+         */
+        public Builder where(char key, Predicate<BlockState> predicate, double selectivity) {
+            if (key == ' ') {
+                throw new IllegalArgumentException("The space character is reserved to match any block");
+            }
+            this.palette.put(key, predicate);
+            if (selectivity >= 0) {
+                this.selectivity.put(key, selectivity);
+            } else {
+                this.selectivity.remove(key);
+            }
+            return this;
+        }
+
+        public Builder allowRotation(boolean rotate) {
+            this.rotate = rotate;
+            return this;
+        }
+
+        public Builder allowMirror(boolean mirror) {
+            this.mirror = mirror;
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public MultiBlockTemplate build() {
+            // Collect the cells
+            List<int[]> cells = Lists.newArrayList();
+            List<Character> keys = Lists.newArrayList(this.palette.keySet());
+            int[] counts = new int[keys.size()];
+            for (int y = 0; y < this.layers.size(); y++) {
+                String[] rows = this.layers.get(y);
+                for (int z = 0; z < rows.length; z++) {
+                    for (int x = 0; x < rows[z].length(); x++) {
+                        char c = rows[z].charAt(x);
+                        if (c == ' ') {
+                            continue;
+                        }
+                        int entry = keys.indexOf(c);
+                        if (entry < 0) {
+                            throw new IllegalArgumentException("Undefined palette entry '" + c + "' in multi-block template");
+                        }
+                        counts[entry]++;
+                        cells.add(new int[]{x, y, z, entry});
+                    }
+                }
+            }
+            // Order by selectivity: entries with an explicit estimate come first, ordered by that estimate,
+            // the others follow ordered by their share of the cells, as rarer entries are assumed to be more selective.
+            // Both measures are fractions of something else, so they are never compared with each other
+            int total = Math.max(1, cells.size());
+            boolean[] estimated = new boolean[keys.size()];
+            double[] weights = new double[keys.size()];
+            for (int i = 0; i < keys.size(); i++) {
+                Double explicit = this.selectivity.get(keys.get(i));
+                estimated[i] = explicit != null;
+                weights[i] = explicit == null ? ((double) counts[i]) / total : explicit;
+            }
+            cells.sort(Comparator.<int[], Boolean>comparing(cell -> !estimated[cell[3]]).thenComparingDouble(cell -> weights[cell[3]]));
+            Predicate<BlockState>[] palette = keys.stream().map(this.palette::get).toArray(Predicate[]::new);
+            // Compile the variants
+            ImmutableList.Builder<Variant> variants = new ImmutableList.Builder<>();
+            Rotation[] rotations = this.rotate ? Rotation.values() : new Rotation[]{Rotation.NONE};
+            Mirror[] mirrors = this.mirror ? new Mirror[]{Mirror.NONE, Mirror.FRONT_BACK} : new Mirror[]{Mirror.NONE};
+            for (Mirror mirror : mirrors) {
+                for (Rotation rotation : rotations) {
+                    variants.add(this.compile(rotation, mirror, cells, palette));
+                }
+            }
+            return new MultiBlockTemplate(cells.size(), variants.build());
+        }
+
+        @SuppressWarnings("unchecked")
+        private Variant compile(Rotation rotation, Mirror mirror, List<int[]> cells, Predicate<BlockState>[] palette) {
+            int n = cells.size();
+            int[] dx = new int[n];
+            int[] dy = new int[n];
+            int[] dz = new int[n];
+            Predicate<BlockState>[] predicates = new Predicate[n];
+            int[][] anchors = new int[palette.length][];
+            int[] fill = new int[palette.length];
+            for (int[] cell : cells) {
+                fill[cell[3]]++;
+            }
+            for (int i = 0; i < palette.length; i++) {
+                anchors[i] = new int[fill[i]];
+            }
+            Arrays.fill(fill, 0);
+            for (int i = 0; i < n; i++) {
+                int[] cell = cells.get(i);
+                BlockPos offset = Variant.transform(rotation, mirror, BlockPos.ZERO, cell[0], cell[1], cell[2]);
+                dx[i] = offset.getX();
+                dy[i] = offset.getY();
+                dz[i] = offset.getZ();
+                predicates[i] = palette[cell[3]];
+                anchors[cell[3]][fill[cell[3]]++] = i;
+            }
+            return new Variant(rotation, mirror, dx, dy, dz, predicates, palette, anchors);
+        }
+    }
+}
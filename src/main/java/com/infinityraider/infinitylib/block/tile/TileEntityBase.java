@@ -1,12 +1,15 @@
 package com.infinityraider.infinitylib.block.tile;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.infinityraider.infinitylib.InfinityLib;
 import com.infinityraider.infinitylib.network.MessageAutoSyncTileField;
+import com.infinityraider.infinitylib.network.MessageBase;
 import com.infinityraider.infinitylib.network.MessageRenderUpdate;
 import com.infinityraider.infinitylib.network.MessageSyncTile;
 import com.infinityraider.infinitylib.reference.Names;
 import net.minecraft.block.BlockState;
+import net.minecraft.entity.player.ServerPlayerEntity;
 import net.minecraft.nbt.CompoundNBT;
 import net.minecraft.network.NetworkManager;
 import net.minecraft.network.play.server.SUpdateTileEntityPacket;
@@ -16,21 +19,27 @@ import net.minecraft.world.World;
 import net.minecraftforge.fml.LogicalSide;
 
 import javax.annotation.Nonnull;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
 import java.util.function.BiConsumer;
 import java.util.function.BooleanSupplier;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @SuppressWarnings("unused")
 public abstract class TileEntityBase extends TileEntity {
     private static final Random RANDOM = new Random();
 
     private final Map<Integer, AutoSyncedField<?>> syncedFields;
+    private final TileSync tileSync;
 
     public TileEntityBase(TileEntityType<?> tileEntityTypeIn) {
         super(tileEntityTypeIn);
         this.syncedFields = Maps.newHashMap();
+        this.tileSync = new TileSync();
     }
 
     public final int xCoord() {
@@ -119,10 +128,14 @@ public abstract class TileEntityBase extends TileEntity {
         this.syncToClient(false);
     }
 
+    /**
+     * Sends the full tile data to the tracking players, at a rate determined by each player's distance to the tile
+     * @param renderUpdate if the clients should re-render the tile after receiving the data
+     */
     public void syncToClient(boolean renderUpdate) {
         World world = this.getWorld();
         if(world != null && !this.getWorld().isRemote) {
-            new MessageSyncTile(this, renderUpdate).sendToAllAround(this.getWorld(), this.xCoord(), this.yCoord(), this.zCoord(), 128);
+            this.tileSync.queue(renderUpdate);
         }
     }
 
@@ -149,7 +162,27 @@ public abstract class TileEntityBase extends TileEntity {
     protected <F> AutoSyncedField<F> createField(
             F value, BiConsumer<F, CompoundNBT> serializer, Function<CompoundNBT, F> deserializer) {
 
-        AutoSyncedField<F> field = new AutoSyncedField<>(value, this.syncedFields.size(), this, serializer, deserializer);
+        return this.createField(value, serializer, deserializer, SyncMode.CRITICAL);
+    }
+
+    /**
+     * Method to create fields which are automatically synced between server and the client, as well as saved to disk
+     * Only call set method on the server
+     *
+     * This method differs with the above one in that it allows to specify how urgently changes must reach the clients,
+     * changes to cosmetic fields are rate limited depending on the distance of each tracking player.
+     *
+     * @param value The initial value of the field (will not be synced initially, must match server and client)
+     * @param serializer The serializer used to write the value to NBT
+     * @param deserializer The deserializer used to read the value from NBT
+     * @param mode The sync mode of the field
+     * @param <F> The type of the field
+     * @return a new AutoSyncedField object, wrapping the desired value
+     */
+    protected <F> AutoSyncedField<F> createField(
+            F value, BiConsumer<F, CompoundNBT> serializer, Function<CompoundNBT, F> deserializer, SyncMode mode) {
+
+        AutoSyncedField<F> field = new AutoSyncedField<>(value, this.syncedFields.size(), this, serializer, deserializer, mode);
         this.syncedFields.put(field.getId(), field);
         return field;
     }
@@ -172,7 +205,7 @@ public abstract class TileEntityBase extends TileEntity {
     protected <F> AutoSyncedField<F> createField(
             F value, BiConsumer<F, CompoundNBT> serializer, Function<CompoundNBT, F> deserializer, BooleanSupplier checker, F fallback) {
 
-        AutoSyncedField<F> field = new AutoSyncedFieldDelayed<>(value, this.syncedFields.size(), this, serializer, deserializer, checker, fallback);
+        AutoSyncedField<F> field = new AutoSyncedFieldDelayed<>(value, this.syncedFields.size(), this, serializer, deserializer, SyncMode.CRITICAL, checker, fallback);
         this.syncedFields.put(field.getId(), field);
         return field;
     }
@@ -183,23 +216,45 @@ public abstract class TileEntityBase extends TileEntity {
         return (AutoSyncedField<F>) this.syncedFields.get(id);
     }
 
+    /**
+     * Determines how changes to an AutoSyncedField are sent to the clients
+     */
+    public enum SyncMode {
+        /** Changes are sent to all tracking players immediately */
+        CRITICAL,
+        /** Changes are rate limited per tracking player, depending on their distance to the tile */
+        COSMETIC
+    }
+
     public static class AutoSyncedField<F> {
         private F value;
 
         private final int id;
         private final TileEntityBase tile;
         private final LogicalSide side;
+        private final SyncMode mode;
 
         private final BiConsumer<F, CompoundNBT> serializer;
         private final Function<CompoundNBT, F> deserializer;
 
-        private AutoSyncedField(F value, final int id, TileEntityBase tile, BiConsumer<F, CompoundNBT> serializer, Function<CompoundNBT, F> deserializer) {
+        // Server side state for cosmetic fields
+        private final ThrottledSync throttledSync;
+
+        private AutoSyncedField(F value, final int id, TileEntityBase tile, BiConsumer<F, CompoundNBT> serializer,
+                                Function<CompoundNBT, F> deserializer, SyncMode mode) {
             this.value = value;
             this.id = id;
             this.tile = tile;
             this.side = InfinityLib.instance.proxy().getLogicalSide();
+            this.mode = mode;
             this.serializer = serializer;
             this.deserializer = deserializer;
+            this.throttledSync = new ThrottledSync(tile) {
+                @Override
+                protected MessageBase createMessage() {
+                    return new MessageAutoSyncTileField<>(AutoSyncedField.this);
+                }
+            };
         }
 
         public void set(F value) {
@@ -237,6 +292,10 @@ public abstract class TileEntityBase extends TileEntity {
             return this.side;
         }
 
+        public SyncMode getSyncMode() {
+            return this.mode;
+        }
+
         public CompoundNBT serialize() {
             CompoundNBT tag = new CompoundNBT();
             this.serializer.accept(this.get(), tag);
@@ -248,10 +307,114 @@ public abstract class TileEntityBase extends TileEntity {
         }
 
         protected void sync() {
-            new MessageAutoSyncTileField<>(this).sendToAll();
+            if(this.getSyncMode() == SyncMode.COSMETIC) {
+                this.throttledSync.queue();
+            } else {
+                MessageAutoSyncTileField<F> message = new MessageAutoSyncTileField<>(this);
+                TileSyncHandler.getTrackingPlayers(this.getTile()).forEach(message::sendTo);
+            }
+        }
+    }
+
+    /**
+     * Full tile data sync, the render update flag is kept until every tracking player has received the data
+     */
+    private final class TileSync extends ThrottledSync {
+        private boolean renderUpdate;
+
+        private TileSync() {
+            super(TileEntityBase.this);
+        }
+
+        private void queue(boolean renderUpdate) {
+            this.renderUpdate = this.renderUpdate || renderUpdate;
+            this.queue();
+        }
+
+        @Override
+        protected MessageBase createMessage() {
+            return new MessageSyncTile(TileEntityBase.this, this.renderUpdate);
+        }
+
+        @Override
+        protected void onSynced() {
+            this.renderUpdate = false;
+        }
+    }
+
+    /**
+     * Server side state of a message which is rate limited per tracking player by TileSyncHandler:
+     * the version of the data, and which version was last sent to each tracking player
+     */
+    abstract static class ThrottledSync {
+        private final TileEntityBase tile;
+        private final Map<UUID, SyncRecord> syncRecords;
+        private int version;
+
+        protected ThrottledSync(TileEntityBase tile) {
+            this.tile = tile;
+            this.syncRecords = Maps.newHashMap();
+        }
+
+        protected abstract MessageBase createMessage();
+
+        /**
+         * Called once every tracking player has received the latest version
+         */
+        protected void onSynced() {}
+
+        void queue() {
+            this.version++;
+            TileSyncHandler.getInstance().queue(this);
+        }
+
+        /**
+         * Sends the latest version to the tracking players whose tier allows an update this tick
+         * @param tick the current tick
+         * @return true if all tracking players are up to date
+         */
+        boolean syncThrottled(long tick) {
+            TileEntityBase tile = this.tile;
+            if(tile.isRemoved() || tile.getWorld() == null) {
+                this.syncRecords.clear();
+                return true;
+            }
+            List<ServerPlayerEntity> players = TileSyncHandler.getTrackingPlayers(tile).collect(Collectors.toList());
+            // Forget players which are no longer tracking, they will receive the full tile data when the chunk is sent again
+            Set<UUID> tracking = Sets.newHashSet();
+            players.forEach(player -> tracking.add(player.getUniqueID()));
+            this.syncRecords.keySet().retainAll(tracking);
+            boolean done = true;
+            MessageBase message = null;
+            for(ServerPlayerEntity player : players) {
+                SyncRecord record = this.syncRecords.computeIfAbsent(player.getUniqueID(), uuid -> new SyncRecord());
+                if(record.version == this.version) {
+                    continue;
+                }
+                TileSyncHandler.Tier tier = TileSyncHandler.Tier.forPlayer(player, tile.getPos());
+                if(tick - record.tick >= tier.getInterval()) {
+                    if(message == null) {
+                        message = this.createMessage();
+                    }
+                    message.sendTo(player);
+                    record.version = this.version;
+                    record.tick = tick;
+                } else {
+                    done = false;
+                }
+            }
+            if(done) {
+                this.onSynced();
+            }
+            return done;
         }
     }
 
+    private static final class SyncRecord {
+        private int version = -1;
+        private long tick = Long.MIN_VALUE / 2;
+    }
+
     protected static class AutoSyncedFieldDelayed<F> extends AutoSyncedField<F> {
         private final BooleanSupplier checker;
         private final F fallback;
@@ -259,8 +422,8 @@ public abstract class TileEntityBase extends TileEntity {
         private CompoundNBT data;
 
         private AutoSyncedFieldDelayed(F value, int id, TileEntityBase tile, BiConsumer<F, CompoundNBT> serializer, Function<CompoundNBT, F> deserializer,
-                                       BooleanSupplier checker, F fallback) {
-            super(value, id, tile, serializer, deserializer);
+                                       SyncMode mode, BooleanSupplier checker, F fallback) {
+            super(value, id, tile, serializer, deserializer, mode);
             this.checker = checker;
             this.fallback = fallback;
         }
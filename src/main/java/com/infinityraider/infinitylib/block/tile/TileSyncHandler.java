@@ -0,0 +1,120 @@
+package com.infinityraider.infinitylib.block.tile;
+
+import com.google.common.collect.Sets;
+import net.minecraft.entity.player.ServerPlayerEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.server.ServerWorld;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.event.server.FMLServerStoppedEvent;
+
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Handles the distance tiered synchronization of cosmetic AutoSyncedFields and of full tile data (TileEntityBase.syncToClient()).
+ * These are not sent on every change, instead they are queued here and sent to each tracking player
+ * at a rate determined by that player's distance to the tile.
+ */
+public class TileSyncHandler {
+    private static final TileSyncHandler INSTANCE = new TileSyncHandler();
+
+    public static TileSyncHandler getInstance() {
+        return INSTANCE;
+    }
+
+    private final Set<TileEntityBase.ThrottledSync> pending;
+    private long tick;
+
+    private TileSyncHandler() {
+        this.pending = Sets.newIdentityHashSet();
+    }
+
+    /**
+     * @return the number of server ticks counted by this handler
+     */
+    public long getTick() {
+        return this.tick;
+    }
+
+    void queue(TileEntityBase.ThrottledSync sync) {
+        this.pending.add(sync);
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if(event.phase != TickEvent.Phase.END) {
+            return;
+        }
+        this.tick++;
+        Iterator<TileEntityBase.ThrottledSync> iterator = this.pending.iterator();
+        while(iterator.hasNext()) {
+            // Syncs are only removed once every tracking player has received the latest version
+            if(iterator.next().syncThrottled(this.tick)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onServerStopped(FMLServerStoppedEvent event) {
+        this.pending.clear();
+        this.tick = 0;
+    }
+
+    /**
+     * Fetches all players which are currently tracking the chunk containing a tile
+     * @param tile the tile
+     * @return stream of the tracking players, empty on the client
+     */
+    public static Stream<ServerPlayerEntity> getTrackingPlayers(TileEntityBase tile) {
+        World world = tile.getWorld();
+        if(world instanceof ServerWorld) {
+            return ((ServerWorld) world).getChunkProvider().chunkManager.getTrackingPlayers(new ChunkPos(tile.getPos()), false);
+        }
+        return Stream.empty();
+    }
+
+    /**
+     * Level of detail tiers for cosmetic field synchronization
+     */
+    public enum Tier {
+        NEAR(32, 1),
+        MID(64, 5),
+        FAR(Integer.MAX_VALUE, 20);
+
+        private final double rangeSq;
+        private final int interval;
+
+        Tier(int range, int interval) {
+            this.rangeSq = ((double) range) * range;
+            this.interval = interval;
+        }
+
+        /**
+         * @return the minimum number of ticks between two updates of a field for players in this tier
+         */
+        public int getInterval() {
+            return this.interval;
+        }
+
+        public boolean isInRange(double distanceSq) {
+            return distanceSq < this.rangeSq;
+        }
+
+        public static Tier forPlayer(ServerPlayerEntity player, BlockPos pos) {
+            double distanceSq = player.getDistanceSq(pos.getX() + 0.5, pos.getY() + 0.5, pos.getZ() + 0.5);
+            for(Tier tier : values()) {
+                if(tier.isInRange(distanceSq)) {
+                    return tier;
+                }
+            }
+            return FAR;
+        }
+    }
+}
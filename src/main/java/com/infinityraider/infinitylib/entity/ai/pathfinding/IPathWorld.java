@@ -0,0 +1,26 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+/**
+ * Read-only view of the world used by path searches, which only exposes the PathCellType of every block.
+ * Implementations must be safe to query from the path calculation threads.
+ */
+public interface IPathWorld {
+    /**
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     * @return the PathCellType at the given coordinates, unknown (e.g. unloaded) blocks should be reported as SOLID
+     */
+    int getCellType(int x, int y, int z);
+
+    /**
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     * @param options the options of the entity
+     * @return true if an entity with the given options can occupy the given cell
+     */
+    default boolean isPassable(int x, int y, int z, PathCalculator.IPathOptions options) {
+        return PathCellType.isPassable(this.getCellType(x, y, z), options);
+    }
+}
@@ -0,0 +1,405 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import it.unimi.dsi.fastutil.floats.FloatArrayList;
+import it.unimi.dsi.fastutil.floats.FloatList;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.SectionPos;
+import net.minecraft.world.IWorld;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Abstract graph for hierarchical path finding, every chunk section is a cluster of the graph.
+ *
+ * The nodes of the graph are portal cells: for every group of adjacent cells from which an entity can move into a
+ * neighbouring section, one representative transition is kept. Transitions are the edges between clusters, edges within
+ * a cluster are found with a Dijkstra search restricted to the cluster and are cached per node.
+ *
+ * Clusters are built lazily from PathSection snapshots when a search first needs them. When a section is invalidated,
+ * only its cluster and those of its neighbours (whose transitions lead into it) are discarded.
+ * There is one graph per world, movement profile and entity height.
+ */
+public class PathAbstractGraph {
+    private static final Map<IWorld, Map<Long, PathAbstractGraph>> GRAPHS = new IdentityHashMap<>();
+
+    /**
+     * Fetches the graph for a world and movement profile, creating it if needed
+     * @param world the world
+     * @param options the path finding options
+     * @param height the height of the entity, in blocks
+     * @return the graph
+     */
+    public static PathAbstractGraph get(IWorld world, PathCalculator.IPathOptions options, int height) {
+        long key = (((long) options.getProfile()) << 8) | (height & 0xFF);
+        synchronized (GRAPHS) {
+            Map<Long, PathAbstractGraph> graphs = GRAPHS.computeIfAbsent(world, w -> new ConcurrentHashMap<>());
+            return graphs.computeIfAbsent(key, k -> new PathAbstractGraph());
+        }
+    }
+
+    private static final ThreadLocal<PathNodePool> POOLS = ThreadLocal.withInitial(PathNodePool::new);
+
+    private final Map<Long, Cluster> clusters;
+    private final AtomicLong version;
+
+    private PathAbstractGraph() {
+        this.clusters = new ConcurrentHashMap<>();
+        this.version = new AtomicLong();
+    }
+
+    /**
+     * @return the number of clusters currently built
+     */
+    public int getClusterCount() {
+        return this.clusters.size();
+    }
+
+    /**
+     * Fetches a cluster, building it if needed
+     * @param movement movement rules on a view of the world
+     * @param sectionKey the section, as a long as defined by SectionPos.asLong()
+     * @return the cluster
+     */
+    public Cluster getCluster(PathMovement movement, long sectionKey) {
+        Cluster cluster = this.clusters.get(sectionKey);
+        if(cluster == null) {
+            long version = this.version.get();
+            cluster = new Cluster(movement, sectionKey);
+            this.clusters.put(sectionKey, cluster);
+            if(this.version.get() != version) {
+                // A section was invalidated during the build, the cluster may be stale, keep it for this search only
+                this.clusters.remove(sectionKey, cluster);
+            }
+        }
+        return cluster;
+    }
+
+    /**
+     * Discards the cluster of a section and of its neighbours
+     * @param sectionKey the section, as a long as defined by SectionPos.asLong()
+     */
+    public void invalidate(long sectionKey) {
+        this.version.incrementAndGet();
+        this.clusters.remove(sectionKey);
+        for(int i = 0; i < 6; i++) {
+            this.clusters.remove(SectionPos.withOffset(sectionKey,
+                    i == 0 ? 1 : i == 1 ? -1 : 0,
+                    i == 2 ? 1 : i == 3 ? -1 : 0,
+                    i == 4 ? 1 : i == 5 ? -1 : 0));
+        }
+    }
+
+    /**
+     * Runs a Dijkstra search within the cluster containing a cell
+     * @param movement movement rules on a view of the world
+     * @param cluster the cluster containing the cell
+     * @param from the cell to search from
+     * @param goal goal test for the search, or null
+     * @return edges to all portal cells of the cluster reachable from the cell, and to the first goal cell found
+     */
+    protected Edges search(PathMovement movement, Cluster cluster, long from, IGoal goal) {
+        PathNodePool pool = POOLS.get();
+        pool.reset();
+        LongList cells = new LongArrayList();
+        FloatList costs = new FloatArrayList();
+        int remaining = cluster.exits.size();
+        boolean goalFound = goal == null;
+        int[] current = new int[1];
+        pool.open(pool.create(from, 0, 0, -1));
+        while(pool.hasOpen() && (remaining > 0 || !goalFound)) {
+            int node = pool.pollOpen();
+            long pos = pool.pos(node);
+            if(cluster.exits.containsKey(pos)) {
+                cells.add(pos);
+                costs.add(pool.g(node));
+                remaining--;
+            }
+            int x = BlockPos.unpackX(pos);
+            int y = BlockPos.unpackY(pos);
+            int z = BlockPos.unpackZ(pos);
+            if(!goalFound && goal.isGoal(x, y, z)) {
+                if(!cluster.exits.containsKey(pos)) {
+                    cells.add(pos);
+                    costs.add(pool.g(node));
+                }
+                goalFound = true;
+            }
+            current[0] = node;
+            movement.forEachNeighbour(x, y, z, (nx, ny, nz, cost) -> {
+                if(!cluster.contains(nx, ny, nz)) {
+                    return;
+                }
+                long next = BlockPos.pack(nx, ny, nz);
+                float g = pool.g(current[0]) + cost;
+                int neighbour = pool.find(next);
+                if(neighbour < 0) {
+                    pool.open(pool.create(next, g, 0, current[0]));
+                } else if(!pool.isClosed(neighbour) && g < pool.g(neighbour)) {
+                    pool.update(neighbour, g, current[0]);
+                }
+            });
+        }
+        return new Edges(cells.toLongArray(), costs.toFloatArray());
+    }
+
+    /**
+     * Fetches the edges within its cluster for a portal cell, the result is cached
+     */
+    protected Edges getInternalEdges(PathMovement movement, Cluster cluster, long from) {
+        Edges edges = cluster.internal.get(from);
+        if(edges == null) {
+            edges = this.search(movement, cluster, from, null);
+            cluster.internal.put(from, edges);
+        }
+        return edges;
+    }
+
+    /**
+     * Goal test for searches within a cluster
+     */
+    @FunctionalInterface
+    public interface IGoal {
+        boolean isGoal(int x, int y, int z);
+    }
+
+    /**
+     * Edges from a node, as parallel arrays of target cells and costs
+     */
+    public static final class Edges {
+        private static final Edges EMPTY = new Edges(new long[0], new float[0]);
+
+        private final long[] cells;
+        private final float[] costs;
+
+        private Edges(long[] cells, float[] costs) {
+            this.cells = cells;
+            this.costs = costs;
+        }
+
+        public int size() {
+            return this.cells.length;
+        }
+
+        public long getCell(int index) {
+            return this.cells[index];
+        }
+
+        public float getCost(int index) {
+            return this.costs[index];
+        }
+    }
+
+    /**
+     * A chunk section as cluster of the abstract graph
+     */
+    public static final class Cluster {
+        private final long key;
+        private final int minX;
+        private final int minY;
+        private final int minZ;
+        /** Portal cells of this cluster and the transitions into neighbouring clusters from them */
+        private final Long2ObjectMap<Edges> exits;
+        /** Cached edges within this cluster, per portal cell */
+        private final Map<Long, Edges> internal;
+
+        private Cluster(PathMovement movement, long key) {
+            this.key = key;
+            this.minX = SectionPos.extractX(key) << 4;
+            this.minY = SectionPos.extractY(key) << 4;
+            this.minZ = SectionPos.extractZ(key) << 4;
+            this.exits = this.findExits(movement);
+            this.internal = new ConcurrentHashMap<>();
+        }
+
+        public long getKey() {
+            return this.key;
+        }
+
+        public boolean contains(int x, int y, int z) {
+            return x >= this.minX && x < this.minX + 16 && y >= this.minY && y < this.minY + 16 && z >= this.minZ && z < this.minZ + 16;
+        }
+
+        public boolean isPortal(long cell) {
+            return this.exits.containsKey(cell);
+        }
+
+        /**
+         * @return the transitions into neighbouring clusters from a cell, empty if the cell is not a portal
+         */
+        public Edges getExits(long cell) {
+            Edges edges = this.exits.get(cell);
+            return edges == null ? Edges.EMPTY : edges;
+        }
+
+        private Long2ObjectMap<Edges> findExits(PathMovement movement) {
+            // Collect all transitions out of this cluster, grouped by the cluster they lead into
+            Long2ObjectMap<Transitions> byNeighbour = new Long2ObjectOpenHashMap<>();
+            boolean fly = movement.getOptions().canFly();
+            for(int index = 0; index < 4096; index++) {
+                int x = this.minX + (index & 15);
+                int z = this.minZ + ((index >> 4) & 15);
+                int y = this.minY + (index >> 8);
+                if(!movement.fits(x, y, z) || !(fly || movement.isSupported(x, y, z))) {
+                    continue;
+                }
+                long from = BlockPos.pack(x, y, z);
+                movement.forEachNeighbour(x, y, z, (nx, ny, nz, cost) -> {
+                    if(this.contains(nx, ny, nz)) {
+                        return;
+                    }
+                    long neighbour = SectionPos.asLong(nx >> 4, ny >> 4, nz >> 4);
+                    Transitions transitions = byNeighbour.get(neighbour);
+                    if(transitions == null) {
+                        transitions = new Transitions();
+                        byNeighbour.put(neighbour, transitions);
+                    }
+                    transitions.add(from, BlockPos.pack(nx, ny, nz), cost);
+                });
+            }
+            // Keep one representative transition per group of adjacent cells
+            Long2ObjectMap<Edges> exits = new Long2ObjectOpenHashMap<>();
+            ObjectIterator<Transitions> iterator = byNeighbour.values().iterator();
+            while(iterator.hasNext()) {
+                Transitions transitions = iterator.next();
+                for(int representative : transitions.getRepresentatives()) {
+                    long from = transitions.from.getLong(representative);
+                    Edges previous = exits.get(from);
+                    long[] cells = previous == null ? new long[1] : Arrays.copyOf(previous.cells, previous.cells.length + 1);
+                    float[] costs = previous == null ? new float[1] : Arrays.copyOf(previous.costs, previous.costs.length + 1);
+                    cells[cells.length - 1] = transitions.to.getLong(representative);
+                    costs[costs.length - 1] = transitions.costs.getFloat(representative);
+                    exits.put(from, new Edges(cells, costs));
+                }
+            }
+            return exits;
+        }
+    }
+
+    /**
+     * Transitions from one cluster into a neighbouring cluster
+     */
+    private static final class Transitions {
+        private final LongList from = new LongArrayList();
+        private final LongList to = new LongArrayList();
+        private final FloatList costs = new FloatArrayList();
+
+        private void add(long from, long to, float cost) {
+            this.from.add(from);
+            this.to.add(to);
+            this.costs.add(cost);
+        }
+
+        /**
+         * Groups the transitions by adjacency of their origin cells, and picks the transition closest to the center of each group
+         * @return the indices of the representative transitions
+         */
+        private int[] getRepresentatives() {
+            int size = this.from.size();
+            int[] parent = new int[size];
+            for(int i = 0; i < size; i++) {
+                parent[i] = i;
+            }
+            for(int i = 0; i < size; i++) {
+                for(int j = i + 1; j < size; j++) {
+                    if(isAdjacent(this.from.getLong(i), this.from.getLong(j))) {
+                        parent[find(parent, i)] = find(parent, j);
+                    }
+                }
+            }
+            Int2ObjectMap<IntList> groups = new Int2ObjectOpenHashMap<>();
+            for(int i = 0; i < size; i++) {
+                int root = find(parent, i);
+                IntList group = groups.get(root);
+                if(group == null) {
+                    group = new IntArrayList();
+                    groups.put(root, group);
+                }
+                group.add(i);
+            }
+            int[] representatives = new int[groups.size()];
+            int count = 0;
+            for(IntList group : groups.values()) {
+                double cx = 0, cy = 0, cz = 0;
+                for(int i = 0; i < group.size(); i++) {
+                    long pos = this.from.getLong(group.getInt(i));
+                    cx += BlockPos.unpackX(pos);
+                    cy += BlockPos.unpackY(pos);
+                    cz += BlockPos.unpackZ(pos);
+                }
+                cx /= group.size();
+                cy /= group.size();
+                cz /= group.size();
+                int best = -1;
+                double bestDistance = Double.MAX_VALUE;
+                for(int i = 0; i < group.size(); i++) {
+                    int index = group.getInt(i);
+                    long pos = this.from.getLong(index);
+                    double dx = BlockPos.unpackX(pos) - cx;
+                    double dy = BlockPos.unpackY(pos) - cy;
+                    double dz = BlockPos.unpackZ(pos) - cz;
+                    double distance = dx * dx + dy * dy + dz * dz + this.costs.getFloat(index);
+                    if(distance < bestDistance) {
+                        bestDistance = distance;
+                        best = index;
+                    }
+                }
+                representatives[count++] = best;
+            }
+            return representatives;
+        }
+
+        private static int find(int[] parent, int i) {
+            while(parent[i] != i) {
+                parent[i] = parent[parent[i]];
+                i = parent[i];
+            }
+            return i;
+        }
+
+        private static boolean isAdjacent(long a, long b) {
+            return Math.abs(BlockPos.unpackX(a) - BlockPos.unpackX(b)) <= 1
+                    && Math.abs(BlockPos.unpackY(a) - BlockPos.unpackY(b)) <= 1
+                    && Math.abs(BlockPos.unpackZ(a) - BlockPos.unpackZ(b)) <= 1;
+        }
+    }
+
+    /**
+     * Forwards section invalidations to the graphs of the world
+     */
+    private static final class Invalidator implements PathSectionCache.IInvalidationListener {
+        @Override
+        public void onSectionInvalidated(IWorld world, long sectionKey) {
+            Map<Long, PathAbstractGraph> graphs;
+            synchronized (GRAPHS) {
+                graphs = GRAPHS.get(world);
+            }
+            if(graphs != null) {
+                graphs.values().forEach(graph -> graph.invalidate(sectionKey));
+            }
+        }
+
+        @Override
+        public void onWorldInvalidated(IWorld world) {
+            synchronized (GRAPHS) {
+                GRAPHS.remove(world);
+            }
+        }
+    }
+
+    static {
+        PathSectionCache.getInstance().addListener(new Invalidator());
+    }
+}
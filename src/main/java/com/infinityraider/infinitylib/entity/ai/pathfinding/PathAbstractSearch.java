@@ -0,0 +1,185 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import com.google.common.collect.Lists;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.SectionPos;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A* search over a PathAbstractGraph, the result is a list of waypoints (portal cells) between the start and the goal.
+ * Consecutive waypoints are either in the same chunk section, or are the two sides of a transition between sections,
+ * so the concrete path between them can be found with a small PathSearch.
+ * Like PathSearch, the search state is kept in this object so the search can be advanced in steps.
+ */
+public class PathAbstractSearch implements PathAbstractGraph.IGoal {
+    /** Default maximum number of abstract nodes to expand before a search is considered failed */
+    public static final int DEFAULT_MAX_NODES = 4000;
+
+    private final PathAbstractGraph graph;
+    private final PathMovement movement;
+    private final PathNodePool pool;
+    private final BlockPos start;
+    private final BlockPos goal;
+    private final boolean goalBlocked;
+    private final int maxNodes;
+    private final int startNode;
+
+    private PathSearch.Status status;
+    private int result;
+    private int expanded;
+    private boolean budgetExceeded;
+
+    public PathAbstractSearch(PathAbstractGraph graph, PathMovement movement, PathNodePool pool, BlockPos start, BlockPos goal, int maxNodes) {
+        this.graph = graph;
+        this.movement = movement;
+        this.pool = pool;
+        this.start = start;
+        this.goal = goal;
+        this.goalBlocked = !movement.fits(goal.getX(), goal.getY(), goal.getZ());
+        this.maxNodes = maxNodes;
+        this.status = PathSearch.Status.SEARCHING;
+        this.result = -1;
+        this.startNode = this.pool.create(this.start.toLong(), 0, this.heuristic(this.start.toLong()), -1);
+        this.pool.open(this.startNode);
+    }
+
+    public PathSearch.Status getStatus() {
+        return this.status;
+    }
+
+    /**
+     * @return the number of abstract nodes expanded so far
+     */
+    public int getExpandedCount() {
+        return this.expanded;
+    }
+
+    /**
+     * @return the pool holding the nodes of this search
+     */
+    public PathNodePool getNodePool() {
+        return this.pool;
+    }
+
+    /**
+     * @return true if the search failed because the maximum number of nodes was expanded, rather than because the goal is unreachable
+     */
+    public boolean hasExceededBudget() {
+        return this.budgetExceeded;
+    }
+
+    /**
+     * Runs the search until it finishes
+     * @return the waypoints from the start to the goal, both included, or empty if no path was found
+     */
+    public Optional<List<BlockPos>> run() {
+        this.step(Integer.MAX_VALUE);
+        return this.getWaypoints();
+    }
+
+    /**
+     * @return the waypoints from the start to the goal, both included, or empty if the search has not (yet) found the goal
+     */
+    public Optional<List<BlockPos>> getWaypoints() {
+        return this.status == PathSearch.Status.FOUND ? Optional.of(this.collect(this.result)) : Optional.empty();
+    }
+
+    /**
+     * Advances the search
+     * @param budget the maximum number of abstract nodes to expand in this step
+     * @return the status after this step
+     */
+    public PathSearch.Status step(int budget) {
+        while(this.status == PathSearch.Status.SEARCHING && budget-- > 0) {
+            if(!this.pool.hasOpen()) {
+                this.status = PathSearch.Status.FAILED;
+                break;
+            }
+            if(this.expanded >= this.maxNodes) {
+                this.status = PathSearch.Status.FAILED;
+                this.budgetExceeded = true;
+                break;
+            }
+            int node = this.pool.pollOpen();
+            this.expanded++;
+            long pos = this.pool.pos(node);
+            int x = BlockPos.unpackX(pos);
+            int y = BlockPos.unpackY(pos);
+            int z = BlockPos.unpackZ(pos);
+            if(this.isGoal(x, y, z)) {
+                this.result = node;
+                this.status = PathSearch.Status.FOUND;
+                break;
+            }
+            PathAbstractGraph.Cluster cluster = this.graph.getCluster(this.movement, SectionPos.asLong(x >> 4, y >> 4, z >> 4));
+            // Edges within the cluster are only cached for portal cells, and never include the goal
+            PathAbstractGraph.Edges internal;
+            if(this.containsGoal(cluster)) {
+                internal = this.graph.search(this.movement, cluster, pos, this);
+            } else if(node == this.startNode) {
+                internal = this.graph.search(this.movement, cluster, pos, null);
+            } else {
+                internal = this.graph.getInternalEdges(this.movement, cluster, pos);
+            }
+            this.relax(node, internal);
+            this.relax(node, cluster.getExits(pos));
+        }
+        return this.status;
+    }
+
+    private void relax(int node, PathAbstractGraph.Edges edges) {
+        for(int i = 0; i < edges.size(); i++) {
+            long cell = edges.getCell(i);
+            float g = this.pool.g(node) + edges.getCost(i);
+            int neighbour = this.pool.find(cell);
+            if(neighbour < 0) {
+                this.pool.open(this.pool.create(cell, g, this.heuristic(cell), node));
+            } else if(!this.pool.isClosed(neighbour) && g < this.pool.g(neighbour)) {
+                this.pool.update(neighbour, g, node);
+            }
+        }
+    }
+
+    private boolean containsGoal(PathAbstractGraph.Cluster cluster) {
+        int range = this.goalBlocked ? 1 : 0;
+        for(int dx = -range; dx <= range; dx++) {
+            for(int dy = -range; dy <= range; dy++) {
+                for(int dz = -range; dz <= range; dz++) {
+                    if(cluster.contains(this.goal.getX() + dx, this.goal.getY() + dy, this.goal.getZ() + dz)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isGoal(int x, int y, int z) {
+        if(x == this.goal.getX() && y == this.goal.getY() && z == this.goal.getZ()) {
+            return true;
+        }
+        return this.goalBlocked
+                && Math.abs(x - this.goal.getX()) <= 1
+                && Math.abs(y - this.goal.getY()) <= 1
+                && Math.abs(z - this.goal.getZ()) <= 1;
+    }
+
+    private float heuristic(long pos) {
+        return PathMovement.heuristic(BlockPos.unpackX(pos), BlockPos.unpackY(pos), BlockPos.unpackZ(pos),
+                this.goal.getX(), this.goal.getY(), this.goal.getZ());
+    }
+
+    private List<BlockPos> collect(int node) {
+        List<BlockPos> waypoints = Lists.newArrayList();
+        while(node >= 0) {
+            waypoints.add(BlockPos.fromLong(this.pool.pos(node)));
+            node = this.pool.parent(node);
+        }
+        Collections.reverse(waypoints);
+        return waypoints;
+    }
+}
@@ -1,7 +1,11 @@
 package com.infinityraider.infinitylib.entity.ai.pathfinding;
 
+import com.infinityraider.infinitylib.InfinityLib;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.MobEntity;
+import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.pathfinding.Path;
 import net.minecraft.pathfinding.PathPoint;
 import net.minecraft.util.math.BlockPos;
@@ -9,21 +13,60 @@ import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.vector.Vector3d;
 import net.minecraft.util.math.vector.Vector3i;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Class to calculate paths for entities on a separate thread,
+ * Class to calculate paths for entities on a pool of worker threads,
  * Different options and callbacks are available
  *
+ * Queued jobs are prioritized by their distance to the target, the distance to the nearest player and their age:
+ * short paths for entities near players are calculated first, while old jobs eventually rise to the front of the queue.
+ * Searches are processed in slices: after expanding the slice budget of a job, the worker queues the job again and
+ * moves on to the next one, so a single expensive search can not hold up all other jobs. Jobs exceeding their total
+ * budget are given a best-effort path towards the explored node closest to their target.
+ * The workers are started when the server starts and all jobs are cancelled when the server stops.
+ *
  * When prompting the calculator to calculate a path for an entity, the entity will be given a temporary path
  * which will keep the entity standby until the actual path has been determined
  *
  * Changing the path manually of the entity while a path is being calculated might result in weird entity behaviour,
  * cancel the job first before setting a new path
  */
-public class PathCalculator implements Runnable {
+public class PathCalculator {
+    /** Number of nodes a worker expands before checking if its job has been cancelled */
+    protected static final int CANCEL_CHECK_INTERVAL = 256;
+
+    /** Priority penalty per block of distance between the entity and its target */
+    protected static final double PRIORITY_TARGET_DISTANCE = 1.0D;
+    /** Priority penalty per block of distance between the entity and the nearest player */
+    protected static final double PRIORITY_PLAYER_DISTANCE = 0.5D;
+    /** Player distance used when there are no players nearby */
+    protected static final double PRIORITY_MAX_PLAYER_DISTANCE = 128.0D;
+    /** Priority penalty per second between starting the calculator and queueing a job, jobs which were queued earlier are processed first */
+    protected static final double PRIORITY_AGE = 20.0D;
+    /** Priority penalty for a job which is queued again after a slice, lets the other jobs take their turn. The penalty does not add up over slices */
+    protected static final double PRIORITY_SLICE = 5.0D;
+
+    /** Jobs to fixed targets further away than this many blocks are planned hierarchically */
+    protected static final double HIERARCHICAL_DISTANCE = 64.0D;
+    /** Number of abstract segments refined at once by hierarchical planning */
+    protected static final int REFINED_SEGMENTS = 4;
+    /** Maximum number of nodes to expand when refining a single abstract segment */
+    protected static final int REFINE_MAX_NODES = 4096;
+
+    /** Incremental searches are restarted once the entity is further than this many blocks from their root */
+    protected static final double REROOT_DISTANCE = 8.0D;
+
+    /** Time a worker waits for a new job before checking if it should stop */
+    private static final long POLL_TIMEOUT_MS = 100;
+
     /**
      * Singleton instance, will be used to calculate paths, will by default be set to this class,
      * can manually be changed by calling setInstance().
@@ -48,22 +91,39 @@ public class PathCalculator implements Runnable {
         return instance;
     }
 
-    /** All queued jobs */
-    private final Deque<PathFindJob> jobs;
-
-    /** Flag: is true if the calculator should stop calculating paths */
-    private boolean stop;
-    /** Flag: is true if the calculator is not running */
-    private boolean stopped;
-    /** Flag: is true if all current jobs should be cancelled */
-    private boolean cancelJobs;
+    /** All queued jobs, ordered by priority */
+    private final PriorityBlockingQueue<QueuedJob> jobs;
+    /** All jobs which are currently being processed by a worker */
+    private final Set<PathFindJob> inFlight;
+    /** Tie breaker for jobs with equal priority, keeps the queue first in first out */
+    private final AtomicLong sequence;
+    /** Reference time for job ages */
+    private final long epoch;
+    /** Number of worker threads */
+    private final int workerCount;
+
+    /** Flag: is true while the workers are running */
+    private volatile boolean running;
+    /** Incremented every time the workers are (re)started, workers of previous generations exit */
+    private volatile int generation;
 
     /** Constructor */
     protected PathCalculator() {
-        this.jobs = new ArrayDeque<>();
-        this.stop = false;
-        this.stopped = true;
-        this.cancelJobs = false;
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    /**
+     * Constructor
+     * @param workerCount the number of worker threads
+     */
+    protected PathCalculator(int workerCount) {
+        this.jobs = new PriorityBlockingQueue<>();
+        this.inFlight = ConcurrentHashMap.newKeySet();
+        this.sequence = new AtomicLong();
+        this.epoch = System.nanoTime();
+        this.workerCount = Math.max(1, workerCount);
+        this.running = false;
+        this.generation = 0;
     }
 
     //Path calculation request methods
@@ -203,6 +263,11 @@ public class PathCalculator implements Runnable {
             public boolean isValid() {
                 return target.isAlive();
             }
+
+            @Override
+            public Optional<Entity> getTargetEntity() {
+                return Optional.of(target);
+            }
         };
         this.calculatePath(entity, iTarget, options);
     }
@@ -242,40 +307,99 @@ public class PathCalculator implements Runnable {
     //Calculator execution command methods
     //------------------------------------
 
-    /** Starts the calculation thread */
-    public void start() {
-        if(this.stopped) {
-            this.stop = false;
-            new Thread(this).start();
+    /** Starts the worker threads */
+    public synchronized void start() {
+        if(this.running) {
+            return;
+        }
+        this.running = true;
+        int generation = ++this.generation;
+        for(int i = 0; i < this.workerCount; i++) {
+            Thread worker = new Thread(() -> this.work(generation), "InfinityLib-PathCalculator-" + i);
+            worker.setDaemon(true);
+            worker.setPriority(Thread.NORM_PRIORITY - 1);
+            worker.start();
         }
     }
 
-    /** Stops the calculation thread without cancelling any queued jobs */
-    public void stop() {
-        this.stop = true;
+    /** Stops the worker threads without cancelling any queued jobs, jobs which are being processed are completed */
+    public synchronized void stop() {
+        this.running = false;
     }
 
-    /** Cancels the calculation thread and cancels all queued jobs */
-    public void cancel() {
-        this.cancelJobs = true;
+    /** Stops the worker threads and cancels all queued jobs, as well as the jobs which are being processed */
+    public synchronized void cancel() {
         this.stop();
+        List<QueuedJob> queued = new ArrayList<>();
+        this.jobs.drainTo(queued);
+        queued.forEach(queuedJob -> {
+            queuedJob.getJob().cancel();
+            queuedJob.getJob().discardSearch();
+        });
+        // The workers notice the cancellation the next time they check the job and discard their results
+        this.inFlight.forEach(PathFindJob::cancel);
     }
 
-    @Override
-    public final void run() {
-        this.stopped = false;
-        while(!stop) {
-            processJob(jobs.pollFirst());
-            if(jobs.size() <= 0) {
-                this.stop();
+    /**
+     * @return true if the worker threads are running
+     */
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    /**
+     * @return the number of queued jobs, excluding the jobs which are being processed
+     */
+    public int getQueuedJobCount() {
+        return this.jobs.size();
+    }
+
+    /**
+     * @return the number of jobs which are being processed
+     */
+    public int getInFlightJobCount() {
+        return this.inFlight.size();
+    }
+
+    private void work(int generation) {
+        while(this.running && this.generation == generation) {
+            QueuedJob queued;
+            try {
+                queued = this.jobs.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if(queued == null) {
+                continue;
+            }
+            PathFindJob job = queued.getJob();
+            this.inFlight.add(job);
+            boolean done = true;
+            PathMetrics metrics = PathMetrics.getInstance();
+            long sliceStart = metrics.isEnabled() ? System.nanoTime() : 0;
+            try {
+                done = this.processSlice(job);
+            } catch(Exception e) {
+                InfinityLib.instance.getLogger().error("Exception while calculating path for " + job.entity());
+                InfinityLib.instance.getLogger().printStackTrace(e);
+                job.fail();
+            } finally {
+                this.inFlight.remove(job);
+                if(sliceStart != 0) {
+                    job.addProcessingTime(System.nanoTime() - sliceStart);
+                    if(done) {
+                        metrics.onJobProcessed(job, job.getExpandedCount());
+                    }
+                }
+                if(done || !job.isValid()) {
+                    job.discardSearch();
+                } else {
+                    // The job keeps the time it was first queued, so long searches do not lose their age
+                    this.jobs.add(new QueuedJob(job, queued.priority, queued.enqueueTime, PRIORITY_SLICE, this.sequence.getAndIncrement()));
+                }
             }
         }
-        if(this.cancelJobs) {
-            jobs.forEach(PathFindJob::cancel);
-            jobs.clear();
-            this.cancelJobs = false;
-        }
-        this.stopped = true;
     }
 
 
@@ -283,48 +407,437 @@ public class PathCalculator implements Runnable {
     //--------------------------------
 
     /**
-     * Adds a job to be processed by the calculation thread,
-     * Will fail if the thread has been cancelled
-     * Starts the thread if the thread was stopped
+     * Adds a job to be processed by the worker threads,
+     * Starts the workers if they were stopped
+     * Must be called from the server thread, as the priority of the job is determined from the world,
+     * and the world sections the job will most likely need are cached beforehand
      *
      * @param job the job to add
      * @return true if the job was successfully queued, false otherwise
      */
     protected boolean addJob(PathFindJob job) {
-        if(this.cancelJobs) {
+        if(!job.isValid()) {
             return false;
         }
-        this.jobs.add(job);
-        if(this.stopped) {
+        PathSectionCache.getInstance().prepare(job.entity().getEntityWorld(), job.getStartPos(), job.getTarget());
+        job.resetBudget();
+        if(job.getWaypoints() == null) {
+            // Continuations of hierarchical paths are new jobs for the same entity, subscribing them would count the entity twice
+            PathFlowFieldService.getInstance().subscribe(job);
+        }
+        PathMetrics.getInstance().onJobQueued(job);
+        this.jobs.add(new QueuedJob(job, this.getPriority(job), this.getEnqueueTime(), 0, this.sequence.getAndIncrement()));
+        if(!this.running) {
             this.start();
         }
         return true;
     }
 
+    /**
+     * Determines the priority of a job, jobs with a lower value are processed first
+     * @param job the job
+     * @return the priority of the job
+     */
+    protected double getPriority(PathFindJob job) {
+        MobEntity entity = job.entity();
+        double targetDistance = entity.getPositionVec().distanceTo(job.getTargetVector());
+        PlayerEntity player = entity.getEntityWorld().getClosestPlayer(entity, PRIORITY_MAX_PLAYER_DISTANCE);
+        double playerDistance = player == null ? PRIORITY_MAX_PLAYER_DISTANCE : entity.getDistance(player);
+        return PRIORITY_TARGET_DISTANCE * targetDistance + PRIORITY_PLAYER_DISTANCE * playerDistance;
+    }
+
+    /**
+     * @return the time in seconds since this calculator was created, jobs queued earlier get a lower priority value,
+     * so a job which has been waiting outranks a new job with a better distance priority after a while
+     */
+    private double getEnqueueTime() {
+        return (System.nanoTime() - this.epoch) / 1.0E9D;
+    }
+
     /**
      * Processes a job, meaning a Path is calculated, and the job callback methods are correctly notified afterwards
      * @param job job to be processed
      */
     protected void processJob(PathFindJob job) {
-        if(job != null && job.isValid()) {
-            this.determinePath(job).map(path -> {
-                job.finish(path);
-                return job;
-            }).orElseGet(() -> {
+        if(job == null) {
+            return;
+        }
+        job.resetBudget();
+        try {
+            while(!this.processSlice(job)) {
+                // Keep going until the job is done
+            }
+        } finally {
+            job.discardSearch();
+        }
+    }
+
+    /**
+     * Processes a slice of a job: either the path is determined right away, or the search of the job is advanced by at most
+     * the slice budget of the job. All strategies charge the nodes they expand against the remaining budget of the job,
+     * which a search started as fallback inherits. Once the job is done, its callback methods are correctly notified.
+     * @param job job to be processed
+     * @return true if the job is done, false if its search has to be continued in a next slice
+     */
+    protected boolean processSlice(PathFindJob job) {
+        if(job == null || !job.isValid()) {
+            return true;
+        }
+        if(job.getSearch() != null) {
+            return this.continueSearch(job);
+        }
+        if(job.getHierarchicalSearch() != null) {
+            return this.continueHierarchicalSearch(job);
+        }
+        PathIncrementalSearch incremental = job.getIncrementalSearch();
+        if(incremental != null && incremental.getStatus() == PathSearch.Status.SEARCHING) {
+            return this.continueIncrementalSearch(job);
+        }
+        MobEntity entity = job.entity();
+        Optional<Path> cached = this.getResultCache().get(entity.getEntityWorld(), job.getStartPos(), job.getTarget(), job.options(), MathHelper.ceil(entity.getHeight()));
+        if(cached.isPresent()) {
+            // Cached paths reach the target, there is nothing left to refine or to replan incrementally
+            job.setWaypoints(null);
+            job.setIncrementalSearch(null, null, null);
+            this.complete(job, cached);
+            return true;
+        }
+        if(job.getWaypoints() != null || this.useHierarchicalSearch(job)) {
+            job.setHierarchicalSearch(this.createHierarchicalSearch(job));
+            return this.continueHierarchicalSearch(job);
+        }
+        int remaining = job.getRemainingBudget();
+        Optional<Path> shared = PathFlowFieldService.getInstance().getPath(job);
+        if(shared.isPresent()) {
+            // The incremental search state is outdated once the path is read from a field
+            job.setIncrementalSearch(null, null, null);
+            this.complete(job, shared);
+            return true;
+        }
+        if(job.getRemainingBudget() < remaining) {
+            // The slice was spent on computing the field, the job reads from it or searches on its own in the next slice
+            return false;
+        }
+        if(this.useIncrementalSearch(job)) {
+            return this.continueIncrementalSearch(job);
+        }
+        job.setSearch(this.createSearch(job), job.getStartPos());
+        return this.continueSearch(job);
+    }
+
+    /**
+     * Starts the A* search of a job as fallback, with the remaining budget of the job, the search is advanced from the next slice on
+     * @param job the job
+     * @return true if the job is done because its budget is used up, false if the search has to be continued in a next slice
+     */
+    private boolean startSearch(PathFindJob job) {
+        if(job.getRemainingBudget() <= 0) {
+            job.fail();
+            return true;
+        }
+        job.setSearch(this.createSearch(job), job.getStartPos());
+        return false;
+    }
+
+    /**
+     * Advances the search of a job by at most its slice budget
+     * @param job the job
+     * @return true if the search is done and the job has been notified, false if the search has to be continued
+     */
+    private boolean continueSearch(PathFindJob job) {
+        PathSearch search = job.getSearch();
+        int expanded = search.getExpandedCount();
+        int budget = job.getSliceBudget();
+        PathSearch.Status status;
+        while((status = search.step(Math.min(budget, CANCEL_CHECK_INTERVAL))) == PathSearch.Status.SEARCHING) {
+            budget -= CANCEL_CHECK_INTERVAL;
+            if(!job.isValid() || budget <= 0) {
+                break;
+            }
+        }
+        job.consumeBudget(search.getExpandedCount() - expanded);
+        if(!job.isValid()) {
+            return true;
+        }
+        if(status == PathSearch.Status.SEARCHING) {
+            return false;
+        }
+        IPathWorld view = search.getMovement().getWorld();
+        if(status == PathSearch.Status.FAILED && view instanceof PathWorldCached && ((PathWorldCached) view).isIncomplete()
+                && job.getRemainingBudget() > job.getSliceBudget()) {
+            // Sections were still being built by the main thread, waiting for them costs a slice of the budget
+            job.consumeBudget(job.getSliceBudget());
+            job.setSearch(null, null);
+            return false;
+        }
+        if(status == PathSearch.Status.FOUND) {
+            MobEntity entity = job.entity();
+            if(view instanceof PathWorldCached) {
+                // Only results of searches in cached sections can be validated before they are stored
+                this.getResultCache().put(entity.getEntityWorld(), job.getSearchStart(), job.getTarget(), job.options(),
+                        MathHelper.ceil(entity.getHeight()), search.getCells(), (PathWorldCached) view);
+            }
+            search.getPath().ifPresent(path -> job.finish(this.postProcess(job, path)));
+        } else if(search.hasExceededBudget()) {
+            Optional<Path> partial = search.getBestEffortPath();
+            if(partial.isPresent()) {
+                job.finishPartial(this.postProcess(job, partial.get()));
+            } else {
                 job.fail();
-                return job;
-            });
+            }
+        } else {
+            job.fail();
         }
+        return true;
     }
 
     /**
-     * Actually calculates a path for a job
+     * Advances the hierarchical search of a job by at most its slice budget.
+     * If the abstract plan or its first segment exceeds its node bound, the job falls back to a regular search.
+     * @param job the job
+     * @return true if the search is done and the job has been notified, false if the search has to be continued
+     */
+    private boolean continueHierarchicalSearch(PathFindJob job) {
+        PathHierarchicalSearch search = job.getHierarchicalSearch();
+        int expanded = search.getExpandedCount();
+        int budget = Math.min(job.getSliceBudget(), job.getRemainingBudget());
+        PathSearch.Status status = search.getStatus();
+        while(budget > 0 && (status = search.step(Math.min(budget, CANCEL_CHECK_INTERVAL))) == PathSearch.Status.SEARCHING) {
+            budget -= CANCEL_CHECK_INTERVAL;
+            if(!job.isValid()) {
+                break;
+            }
+        }
+        job.consumeBudget(search.getExpandedCount() - expanded);
+        if(!job.isValid()) {
+            return true;
+        }
+        if(status == PathSearch.Status.SEARCHING && job.getRemainingBudget() > 0) {
+            return false;
+        }
+        job.setHierarchicalSearch(null);
+        if(status == PathSearch.Status.FOUND) {
+            job.setWaypoints(search.getRemainingWaypoints());
+            this.complete(job, Optional.ofNullable(search.getPath()));
+            return true;
+        }
+        job.setWaypoints(null);
+        if(status == PathSearch.Status.FAILED && !search.hasExceededBudget()) {
+            // The target is unreachable according to the abstract graph
+            job.fail();
+            return true;
+        }
+        return this.startSearch(job);
+    }
+
+    /**
+     * Advances the incremental search of a job by at most its slice budget, the search is kept in the job to replan
+     * the path when the target moves. The search is rooted at the position of the entity when it was started, it is
+     * started over when the entity has moved too far from the root or off the path, and when its memory bound is exceeded.
+     * @param job the job
+     * @return true if the search is done and the job has been notified, false if the search has to be continued
+     */
+    private boolean continueIncrementalSearch(PathFindJob job) {
+        MobEntity entity = job.entity();
+        PathWorldCached world = PathSectionCache.getInstance().createView(entity.getEntityWorld());
+        PathMovement movement = new PathMovement(world, job.options(), MathHelper.ceil(entity.getHeight()));
+        BlockPos start = this.adjustCell(movement, job.getStartPos());
+        BlockPos goal = this.adjustCell(movement, job.getTarget());
+        PathIncrementalSearch search = job.getIncrementalSearch();
+        LongSet changed = LongSets.EMPTY_SET;
+        // Searches kept from an earlier replan may be outdated, these are started over when they fail
+        boolean outdated = false;
+        if(search != null && start.distanceSq(search.getRoot()) <= REROOT_DISTANCE * REROOT_DISTANCE) {
+            changed = job.getIncrementalView().getChangedSections();
+            outdated = search.getStatus() != PathSearch.Status.SEARCHING;
+        } else {
+            search = new PathIncrementalSearch(start);
+        }
+        List<BlockPos> cells = search.update(movement, goal, changed, Math.min(job.getSliceBudget(), job.getRemainingBudget()));
+        job.consumeBudget(search.getLastExpandedCount());
+        job.setIncrementalSearch(search, world, job.getTargetVector());
+        if(!job.isValid()) {
+            return true;
+        }
+        switch(search.getStatus()) {
+            case FOUND:
+                if(!cells.contains(start)) {
+                    // The entity is no longer on the tree of the search, start over from its current position
+                    return this.retryIncrementalSearch(job);
+                }
+                // The entity may already have walked part of the path
+                this.complete(job, Optional.of(this.toPath(cells.subList(cells.indexOf(start), cells.size()), goal, true)));
+                return true;
+            case SEARCHING:
+                return job.getRemainingBudget() > 0 ? false : this.finishIncrementalSearch(job, search, goal);
+            default:
+                if(outdated) {
+                    return this.retryIncrementalSearch(job);
+                }
+                if(search.hasExceededBound()) {
+                    return this.finishIncrementalSearch(job, search, goal);
+                }
+                // All reachable cells have been explored
+                job.setIncrementalSearch(null, null, null);
+                job.fail();
+                return true;
+        }
+    }
+
+    /**
+     * Discards the incremental search of a job, a new search is started from the current position in the next slice
+     */
+    private boolean retryIncrementalSearch(PathFindJob job) {
+        job.setIncrementalSearch(null, null, null);
+        if(job.getRemainingBudget() <= 0) {
+            job.fail();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finishes a job of which the incremental search ran out of budget or memory with a best-effort path
+     */
+    private boolean finishIncrementalSearch(PathFindJob job, PathIncrementalSearch search, BlockPos goal) {
+        List<BlockPos> partial = search.getBestEffortCells();
+        job.setIncrementalSearch(null, null, null);
+        if(partial.isEmpty()) {
+            job.fail();
+        } else {
+            job.finishPartial(this.postProcess(job, this.toPath(partial, goal, false)));
+        }
+        return true;
+    }
+
+    private Path toPath(List<BlockPos> cells, BlockPos target, boolean reachesTarget) {
+        List<PathPoint> points = new ArrayList<>(cells.size());
+        cells.forEach(cell -> points.add(new PathPoint(cell.getX(), cell.getY(), cell.getZ())));
+        return new Path(points, target, reachesTarget);
+    }
+
+    /**
+     * Notifies a job of its result, unless it was cancelled while the path was being calculated
+     */
+    private void complete(PathFindJob job, Optional<Path> path) {
+        if(!job.isValid()) {
+            return;
+        }
+        if(path.isPresent()) {
+            job.finish(this.postProcess(job, path.get()));
+        } else {
+            job.fail();
+        }
+    }
+
+    /**
+     * Post-processes a calculated path before it is handed to the entity, by default redundant points are removed
+     * with a PathSmoother, so the navigator only has to follow the corners of the path
+     * @param job the job for which the path was calculated
+     * @param path the path
+     * @return the processed path
+     */
+    protected Path postProcess(PathFindJob job, Path path) {
+        MobEntity entity = job.entity();
+        IPathWorld world = PathSectionCache.getInstance().createView(entity.getEntityWorld());
+        return new PathSmoother(new PathMovement(world, job.options(), MathHelper.ceil(entity.getHeight())), entity.getWidth()).smooth(path);
+    }
+
+    /**
+     * Checks if a job should keep its search state to replan incrementally when its target moves
+     * @param job the job
+     * @return true to use incremental replanning
+     */
+    protected boolean useIncrementalSearch(PathFindJob job) {
+        return job.canTargetMove();
+    }
+
+    /**
+     * Entities standing on blocks lower than a full block (farmland, soul sand, ...) have their feet inside the block
+     */
+    private BlockPos adjustCell(PathMovement movement, BlockPos cell) {
+        if(!movement.fits(cell.getX(), cell.getY(), cell.getZ()) && movement.fits(cell.getX(), cell.getY() + 1, cell.getZ())) {
+            return cell.up();
+        }
+        return cell;
+    }
+
+    /**
+     * Checks if a job should be planned hierarchically: first over the abstract graph of chunk section portals,
+     * after which only the first few segments are refined, the next ones are refined as the entity advances
+     * @param job the job
+     * @return true to use hierarchical planning
+     */
+    protected boolean useHierarchicalSearch(PathFindJob job) {
+        return !job.canTargetMove() && job.getStartPos().distanceSq(job.getTarget()) > HIERARCHICAL_DISTANCE * HIERARCHICAL_DISTANCE;
+    }
+
+    /**
+     * Creates the hierarchical search for a job, which either plans from scratch or refines the next segments of the
+     * waypoints stored in the job. The search may be resumed on a different worker thread after every slice.
+     * @param job the job defining the path to be calculated
+     * @return a new search, which has not been started yet
+     */
+    protected PathHierarchicalSearch createHierarchicalSearch(PathFindJob job) {
+        MobEntity entity = job.entity();
+        int height = MathHelper.ceil(entity.getHeight());
+        IPathWorld world = PathSectionCache.getInstance().createView(entity.getEntityWorld());
+        PathMovement movement = new PathMovement(world, job.options(), height);
+        PathAbstractGraph graph = PathAbstractGraph.get(entity.getEntityWorld(), job.options(), height);
+        return new PathHierarchicalSearch(graph, movement, job.getStartPos(), job.getTarget(), job.getWaypoints(),
+                REFINED_SEGMENTS, PathAbstractSearch.DEFAULT_MAX_NODES, REFINE_MAX_NODES);
+    }
+
+    /**
+     * @return the cache holding previously calculated paths
+     */
+    public PathResultCache getResultCache() {
+        return PathResultCache.getInstance();
+    }
+
+    /**
+     * Creates the A* search for a job, the search may be resumed on a different worker thread after every slice,
+     * so its nodes must be acquired from PathNodePool.acquire(), they are released once the job is done
      * @param job the job defining the path to be calculated
-     * @return an optional holding the resulting path, or empty if no path is found
+     * @return a new search, which has not been started yet
+     */
+    protected PathSearch createSearch(PathFindJob job) {
+        MobEntity entity = job.entity();
+        IPathWorld world = PathSectionCache.getInstance().createView(entity.getEntityWorld());
+        PathMovement movement = new PathMovement(world, job.options(), MathHelper.ceil(entity.getHeight()));
+        return new PathSearch(movement, PathNodePool.acquire(), job.getStartPos(), job.getTarget(), job.getRemainingBudget());
+    }
+
+    /**
+     * Entry of the job queue
      */
-    protected Optional<Path> determinePath(PathFindJob job) {
-        //TODO
-        return Optional.empty();
+    private static final class QueuedJob implements Comparable<QueuedJob> {
+        private final PathFindJob job;
+        /** Priority of the job as determined by getPriority() */
+        private final double priority;
+        /** Time the job was first queued, see getEnqueueTime() */
+        private final double enqueueTime;
+        /** Value by which the queue is ordered: the priority, aged by the enqueue time, and the slice penalty */
+        private final double rank;
+        private final long sequence;
+
+        private QueuedJob(PathFindJob job, double priority, double enqueueTime, double penalty, long sequence) {
+            this.job = job;
+            this.priority = priority;
+            this.enqueueTime = enqueueTime;
+            this.rank = priority + PRIORITY_AGE * enqueueTime + penalty;
+            this.sequence = sequence;
+        }
+
+        public PathFindJob getJob() {
+            return this.job;
+        }
+
+        @Override
+        public int compareTo(QueuedJob other) {
+            int result = Double.compare(this.rank, other.rank);
+            return result != 0 ? result : Long.compare(this.sequence, other.sequence);
+        }
     }
 
 
@@ -354,6 +867,13 @@ public class PathCalculator implements Runnable {
          */
         Vector3d getTarget();
 
+        /**
+         * @return the entity which is targeted, or empty if the target is not an entity
+         */
+        default Optional<Entity> getTargetEntity() {
+            return Optional.empty();
+        }
+
         /**
          * @return the target coordinates converted to a PathPoint object
          */
@@ -421,6 +941,19 @@ public class PathCalculator implements Runnable {
          * @return the maximum height the entity can jump
          */
         int maxJumpHeight();
+
+        /**
+         * @return an identifier for these options, options with the same profile result in the same paths
+         */
+        default int getProfile() {
+            return (this.canOpenDoors() ? 1 : 0)
+                    | (this.canClimbLadders() ? 2 : 0)
+                    | (this.canClimbWalls() ? 4 : 0)
+                    | (this.canSwim() ? 8 : 0)
+                    | (this.canFly() ? 16 : 0)
+                    | (MathHelper.clamp(this.maxFallHeight(), 0, 255) << 5)
+                    | (MathHelper.clamp(this.maxJumpHeight(), 0, 255) << 13);
+        }
     }
 
     /**
@@ -0,0 +1,151 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import net.minecraft.block.*;
+import net.minecraft.block.material.Material;
+import net.minecraft.fluid.FluidState;
+import net.minecraft.tags.BlockTags;
+import net.minecraft.tags.FluidTags;
+import net.minecraft.util.Direction;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.shapes.VoxelShape;
+import net.minecraft.world.EmptyBlockReader;
+import net.minecraft.world.IBlockReader;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Classification of blocks for path finding, every block is reduced to one of these types.
+ * Types are stored as small ints (they fit in 4 bits) so they can be packed densely.
+ */
+public final class PathCellType {
+    /** Nothing to collide with */
+    public static final int OPEN = 0;
+    /** Blocks movement, can be stood upon */
+    public static final int SOLID = 1;
+    /** Water and other non-harmful fluids */
+    public static final int LIQUID = 2;
+    /** A closed door which can be opened by hand */
+    public static final int DOOR = 3;
+    /** Ladders, vines and other climbable blocks */
+    public static final int LADDER = 4;
+    /** Harmful blocks which should never be entered or stood upon (lava, fire, cactus, ...) */
+    public static final int DANGER = 5;
+    /** Blocks movement, but can not be stood upon as its collision shape is taller than a block (fences, walls, closed fence gates) */
+    public static final int TALL = 6;
+    /** Collision shape no higher than LOW_HEIGHT (carpets, bottom slabs, low snow layers, ...), entities stand inside the cell on top of the shape */
+    public static final int LOW = 7;
+
+    /** Highest collision shape which entities walk onto without jumping, below the default step height of 0.6 */
+    public static final double LOW_HEIGHT = 0.5;
+
+    /** Number of bits required to store a cell type */
+    public static final int BITS = 4;
+
+    /** Blocks for which the cell type depends on the block state, see isStateSensitive() */
+    private static final Map<Block, Boolean> STATE_SENSITIVE = new ConcurrentHashMap<>();
+
+    private PathCellType() {}
+
+    /**
+     * Classifies a block state
+     * @param world the world the state is in
+     * @param pos the position of the state
+     * @param state the state
+     * @return the cell type
+     */
+    @SuppressWarnings("deprecation")
+    public static int classify(IBlockReader world, BlockPos pos, BlockState state) {
+        if (state.isAir(world, pos)) {
+            return OPEN;
+        }
+        Block block = state.getBlock();
+        if (block instanceof DoorBlock) {
+            if (state.get(DoorBlock.OPEN)) {
+                return OPEN;
+            }
+            return state.getMaterial() == Material.WOOD ? DOOR : SOLID;
+        }
+        if (state.isIn(BlockTags.CLIMBABLE)) {
+            return LADDER;
+        }
+        if (block instanceof AbstractFireBlock || block instanceof CactusBlock || block instanceof MagmaBlock
+                || block instanceof SweetBerryBushBlock || block instanceof WitherRoseBlock) {
+            return DANGER;
+        }
+        // The collision shape goes first, waterlogged blocks (slabs, stairs, fences, ...) are classified by their shape
+        VoxelShape shape = state.getCollisionShape(world, pos);
+        if (!shape.isEmpty()) {
+            double top = shape.getEnd(Direction.Axis.Y);
+            return top > 1 ? TALL : (top <= LOW_HEIGHT ? LOW : SOLID);
+        }
+        FluidState fluid = state.getFluidState();
+        if (!fluid.isEmpty()) {
+            return fluid.isTagged(FluidTags.LAVA) ? DANGER : LIQUID;
+        }
+        return OPEN;
+    }
+
+    /**
+     * Checks if the cell type of a block depends on its state (e.g. doors, trapdoors and fence gates which open and close).
+     * Such state changes are often made without notifying neighbours, and are therefore not seen by the block change events.
+     * The result is determined once per block, by classifying all its states.
+     *
+     * @param block the block
+     * @return true if different states of the block have different cell types
+     */
+    public static boolean isStateSensitive(Block block) {
+        return STATE_SENSITIVE.computeIfAbsent(block, PathCellType::computeStateSensitive);
+    }
+
+    private static boolean computeStateSensitive(Block block) {
+        int type = -1;
+        for (BlockState state : block.getStateContainer().getValidStates()) {
+            int next;
+            try {
+                next = classify(EmptyBlockReader.INSTANCE, BlockPos.ZERO, state);
+            } catch (Exception e) {
+                // The block needs the actual world to determine its shape, assume it may change
+                return true;
+            }
+            if (type >= 0 && next != type) {
+                return true;
+            }
+            type = next;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if an entity with the given options can occupy a cell of this type
+     */
+    public static boolean isPassable(int type, PathCalculator.IPathOptions options) {
+        return isPassable(type, options.canOpenDoors(), options.canSwim());
+    }
+
+    /**
+     * @return true if an entity with the given capabilities can occupy a cell of this type
+     */
+    public static boolean isPassable(int type, boolean canOpenDoors, boolean canSwim) {
+        switch (type) {
+            case OPEN:
+            case LADDER:
+            case LOW:
+                return true;
+            case DOOR:
+                return canOpenDoors;
+            case LIQUID:
+                return canSwim;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return true if an entity can stand on top of a cell of this type, shapes taller than a block (TALL) can not be stood upon,
+     * and entities stand inside LOW cells rather than on top of them
+     */
+    public static boolean isFloor(int type) {
+        return type == SOLID || type == LADDER;
+    }
+}
@@ -6,6 +6,7 @@ import net.minecraft.entity.Entity;
 import net.minecraft.entity.MobEntity;
 import net.minecraft.pathfinding.Path;
 import net.minecraft.pathfinding.PathPoint;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.util.math.vector.Vector3d;
@@ -13,10 +14,15 @@ import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
 
 import javax.annotation.Nullable;
+import java.util.List;
 import java.util.Objects;
 
 public class PathFindJob extends Path {
     public static final double DEFAULT_SPEED = 1.5D;
+    /** Default number of nodes a worker expands for a job before moving on to the next job */
+    public static final int DEFAULT_SLICE_BUDGET = 1024;
+    /** Default number of nodes expanded for a job before it is given a best-effort path */
+    public static final int DEFAULT_TOTAL_BUDGET = PathSearch.DEFAULT_MAX_NODES;
 
     private final MobEntity entity;
     private final double speed;
@@ -24,7 +30,35 @@ public class PathFindJob extends Path {
     private final PathCalculator.IPathOptions options;
     private final ICallback callback;
 
-    private boolean cancelled;
+    private int sliceBudget;
+    private int totalBudget;
+    /** Nodes which may still be expanded, shared by all strategies which process the job, only accessed by the worker processing the job */
+    private int remainingBudget;
+
+    /** Written by the server thread when cancelling and by the calculator threads when finishing */
+    private volatile boolean cancelled;
+
+    /** Written by the server thread when cancelling, a stopped job is never replanned */
+    private volatile boolean stopped;
+    /** True if the job was finished successfully, guarded by the job's monitor */
+    private boolean finished;
+
+    /** Remaining waypoints of a hierarchical path which have not been refined yet */
+    private List<BlockPos> waypoints;
+
+    /** Incremental search state kept between replans for moving targets, see PathIncrementalSearch */
+    private PathIncrementalSearch incrementalSearch;
+    private PathWorldCached incrementalView;
+    private Vector3d incrementalTarget;
+
+    /** Search state kept between slices, only accessed by the worker which is processing the job */
+    private PathSearch search;
+    private BlockPos searchStart;
+    private PathHierarchicalSearch hierarchicalSearch;
+
+    /** Metrics, only written while PathMetrics is enabled */
+    private long queuedTime;
+    private long processingTime;
 
     public PathFindJob(MobEntity entity, PathCalculator.ITarget target, PathCalculator.IPathOptions options) {
         this(entity, DEFAULT_SPEED, target, options);
@@ -41,9 +75,23 @@ public class PathFindJob extends Path {
         this.target = Objects.requireNonNull(target);
         this.options = options;
         this.callback = Objects.requireNonNull(callback);
+        this.sliceBudget = DEFAULT_SLICE_BUDGET;
+        this.totalBudget = DEFAULT_TOTAL_BUDGET;
         this.cancelled = false;
     }
 
+    /**
+     * Sets the node expansion budgets of this job, must be called before the job is queued
+     * @param sliceBudget the number of nodes a worker expands for this job before moving on to the next job
+     * @param totalBudget the number of nodes after which the entity is given a path to the closest explored node instead
+     * @return this
+     */
+    public PathFindJob setNodeBudget(int sliceBudget, int totalBudget) {
+        this.sliceBudget = Math.max(1, sliceBudget);
+        this.totalBudget = Math.max(1, totalBudget);
+        return this;
+    }
+
 
     //Getters
     //-------
@@ -60,11 +108,36 @@ public class PathFindJob extends Path {
         return this.options;
     }
 
+    public int getSliceBudget() {
+        return this.sliceBudget;
+    }
+
+    public int getTotalBudget() {
+        return this.totalBudget;
+    }
+
+    /**
+     * @return the number of nodes which may still be expanded before the job is given a best-effort path
+     */
+    public int getRemainingBudget() {
+        return this.remainingBudget;
+    }
+
     public PathPoint getEntityPoint() {
         Vector3d entityPos = this.getEntityPosition();
         return new PathPoint(MathHelper.floor(entityPos.x), MathHelper.floor(entityPos.y), MathHelper.floor(entityPos.z));
     }
 
+    /**
+     * @return the cell the entity's feet are in, used as start for the path search
+     */
+    public BlockPos getStartPos() {
+        return new BlockPos(
+                MathHelper.floor(this.entity().getPosX()),
+                MathHelper.floor(this.entity().getPosY()),
+                MathHelper.floor(this.entity().getPosZ()));
+    }
+
     public Vector3d getEntityPosition() {
         return this.entity().getPositionVec().add(new Vector3d(
                 (double)((int)(this.entity().getWidth() + 1.0F)) * 0.5D,
@@ -82,26 +155,252 @@ public class PathFindJob extends Path {
     }
 
     public PathFindJob cancel() {
-        this.cancelled = true;
-        this.entity().getNavigator().setPath(null, this.speed());
-        InfinityLib.instance.queueTask(this.callback::onJobCancelled);
+        this.stopped = true;
+        PathFlowFieldService.getInstance().unsubscribe(this);
+        if(this.terminate()) {
+            PathMetrics.getInstance().onJobCancelled();
+            this.runOnServerThread(() -> {
+                this.entity().getNavigator().setPath(null, this.speed());
+                this.callback.onJobCancelled();
+            });
+        }
         return this;
     }
 
     public PathFindJob finish(Path path) {
-        this.entity().getNavigator().setPath(path, this.speed());
-        InfinityLib.instance.queueTask(() -> this.callback.onJobFinished(this.entity(), path));
-        this.cancelled = true;
+        if(this.terminate()) {
+            PathMetrics.getInstance().onJobFinished();
+            List<BlockPos> waypoints = this.waypoints;
+            // Paths read from a shared flow field have no incremental state, but are replanned as well when the target moves
+            Vector3d replanTarget = this.incrementalSearch != null ? this.incrementalTarget
+                    : (this.canTargetMove() && waypoints == null ? this.getTargetVector() : null);
+            if(replanTarget == null) {
+                PathFlowFieldService.getInstance().unsubscribe(this);
+            }
+            synchronized (this) {
+                this.finished = true;
+            }
+            this.runOnServerThread(() -> {
+                this.entity().getNavigator().setPath(path, this.speed());
+                if(waypoints != null && !waypoints.isEmpty()) {
+                    PathPlanHandler.getInstance().track(this, path, waypoints);
+                } else if(replanTarget != null) {
+                    PathPlanHandler.getInstance().trackMovingTarget(this, path, replanTarget);
+                }
+                this.callback.onJobFinished(this.entity(), path);
+            });
+        }
+        return this;
+    }
+
+    /**
+     * Finishes the job with a path which does not reach the target, because the node budget was exceeded
+     * @param path the path to the explored node closest to the target
+     * @return this
+     */
+    public PathFindJob finishPartial(Path path) {
+        if(this.terminate()) {
+            PathMetrics.getInstance().onJobFinishedPartially();
+            PathFlowFieldService.getInstance().unsubscribe(this);
+            this.runOnServerThread(() -> {
+                this.entity().getNavigator().setPath(path, this.speed());
+                this.callback.onJobBudgetExceeded(this.entity(), path);
+            });
+        }
         return this;
     }
 
     public PathFindJob fail() {
-        this.cancelled = true;
-        this.entity().getNavigator().setPath(null, this.speed());
-        InfinityLib.instance.queueTask(this.callback::onJobFailed);
+        if(this.terminate()) {
+            PathMetrics.getInstance().onJobFailed();
+            PathFlowFieldService.getInstance().unsubscribe(this);
+            this.runOnServerThread(() -> {
+                this.entity().getNavigator().setPath(null, this.speed());
+                this.callback.onJobFailed();
+            });
+        }
         return this;
     }
 
+    /**
+     * Marks the job as done, only the first call succeeds so a job can not be both finished and cancelled
+     * @return true if the job was not yet done
+     */
+    private synchronized boolean terminate() {
+        if(this.cancelled) {
+            return false;
+        }
+        this.cancelled = true;
+        return true;
+    }
+
+    /**
+     * Makes a finished job valid again, so it can be queued to replan its path
+     * @return false if the job was not finished, or has been cancelled since
+     */
+    synchronized boolean restart() {
+        if(this.stopped || !this.finished) {
+            return false;
+        }
+        this.finished = false;
+        this.cancelled = false;
+        return true;
+    }
+
+    /**
+     * @return true if the job has been cancelled, it will not be replanned anymore
+     */
+    public boolean isStopped() {
+        return this.stopped;
+    }
+
+    /**
+     * Jobs are finished from the calculator threads, the navigator may only be touched from the server thread
+     */
+    private void runOnServerThread(Runnable task) {
+        MinecraftServer server = this.entity().getServer();
+        if(server == null) {
+            InfinityLib.instance.queueTask(task);
+        } else {
+            server.execute(task);
+        }
+    }
+
+    /**
+     * @return the waypoints of a hierarchical path which still have to be refined, or null if this is not the case
+     */
+    @Nullable
+    public List<BlockPos> getWaypoints() {
+        return this.waypoints;
+    }
+
+    void setWaypoints(@Nullable List<BlockPos> waypoints) {
+        this.waypoints = waypoints;
+    }
+
+    @Nullable
+    PathIncrementalSearch getIncrementalSearch() {
+        return this.incrementalSearch;
+    }
+
+    @Nullable
+    PathWorldCached getIncrementalView() {
+        return this.incrementalView;
+    }
+
+    /**
+     * Stores the incremental search state, or discards it when passing null
+     * @param search the search
+     * @param view the world view the search was last updated with
+     * @param target the target position the search was last updated for
+     */
+    void setIncrementalSearch(@Nullable PathIncrementalSearch search, @Nullable PathWorldCached view, @Nullable Vector3d target) {
+        this.incrementalSearch = search;
+        this.incrementalView = search == null ? null : view;
+        this.incrementalTarget = search == null ? null : target;
+    }
+
+    /**
+     * Resets the remaining node budget to the total budget, called whenever the job is queued
+     */
+    void resetBudget() {
+        this.remainingBudget = this.totalBudget;
+    }
+
+    /**
+     * Charges expanded nodes against the remaining node budget
+     * @param nodes the number of expanded nodes
+     */
+    void consumeBudget(int nodes) {
+        this.remainingBudget = Math.max(0, this.remainingBudget - nodes);
+    }
+
+    /**
+     * @return the number of nodes expanded since the job was queued
+     */
+    int getExpandedCount() {
+        return this.totalBudget - this.remainingBudget;
+    }
+
+    @Nullable
+    PathSearch getSearch() {
+        return this.search;
+    }
+
+    BlockPos getSearchStart() {
+        return this.searchStart;
+    }
+
+    /**
+     * Stores the search which is being processed in slices
+     * @param search the search, its nodes must come from PathNodePool.acquire()
+     * @param start the start of the search, as used for the result cache
+     */
+    void setSearch(PathSearch search, BlockPos start) {
+        this.discardSearch();
+        this.search = search;
+        this.searchStart = start;
+    }
+
+    @Nullable
+    PathHierarchicalSearch getHierarchicalSearch() {
+        return this.hierarchicalSearch;
+    }
+
+    /**
+     * Stores the hierarchical search which is being processed in slices
+     * @param search the search
+     */
+    void setHierarchicalSearch(PathHierarchicalSearch search) {
+        this.discardSearch();
+        this.hierarchicalSearch = search;
+    }
+
+    /**
+     * Discards the searches which are being processed in slices, and releases their nodes
+     */
+    void discardSearch() {
+        if(this.search != null) {
+            PathNodePool.release(this.search.getNodePool());
+            this.search = null;
+            this.searchStart = null;
+        }
+        if(this.hierarchicalSearch != null) {
+            this.hierarchicalSearch.discard();
+            this.hierarchicalSearch = null;
+        }
+    }
+
+    long getQueuedTime() {
+        return this.queuedTime;
+    }
+
+    long getProcessingTime() {
+        return this.processingTime;
+    }
+
+    void resetMetrics(long queuedTime) {
+        this.queuedTime = queuedTime;
+        this.processingTime = 0;
+    }
+
+    void addProcessingTime(long time) {
+        this.processingTime += time;
+    }
+
+    /**
+     * Creates a job to refine the next segments of a hierarchical path,
+     * the callback of this job will be notified for every refined part of the path
+     * @param waypoints the remaining waypoints
+     * @return the new job
+     */
+    PathFindJob continueWith(List<BlockPos> waypoints) {
+        PathFindJob job = new PathFindJob(this.entity(), this.speed(), this.target(), this.options(), this.callback);
+        job.setNodeBudget(this.getSliceBudget(), this.getTotalBudget());
+        job.setWaypoints(waypoints);
+        return job;
+    }
+
     public interface ICallback {
         void onJobCancelled();
 
@@ -109,6 +408,17 @@ public class PathFindJob extends Path {
 
         void onJobFailed();
 
+        /**
+         * Called when the node budget of the job was exceeded before the target was found,
+         * the entity has been given a path towards the explored node closest to the target.
+         * Treated as a failure by default.
+         * @param entity the entity
+         * @param partialPath the path, which does not reach the target
+         */
+        default void onJobBudgetExceeded(MobEntity entity, Path partialPath) {
+            this.onJobFailed();
+        }
+
         ICallback none = new ICallback() {
             @Override
             public void onJobCancelled() {}
@@ -0,0 +1,196 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import com.google.common.collect.Lists;
+import net.minecraft.pathfinding.Path;
+import net.minecraft.pathfinding.PathPoint;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.SectionPos;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Field of shortest paths towards a single target cell, within a bounded box around the target.
+ * The field is computed with a reverse Dijkstra search from the target, afterwards every reached cell knows its
+ * next step towards the target, so paths for any number of entities can be read from it without searching.
+ *
+ * Fields are immutable once computed and can be read from any thread.
+ */
+public class PathFlowField {
+    /** Default horizontal radius of a field */
+    public static final int DEFAULT_RADIUS = 32;
+    /** Default vertical radius of a field */
+    public static final int DEFAULT_VERTICAL_RADIUS = 16;
+    /** Maximum number of cells in a field */
+    public static final int MAX_NODES = 32768;
+
+    private final PathNodePool nodes;
+    private final BlockPos target;
+    private final int radius;
+    private final int verticalRadius;
+
+    private PathFlowField(PathNodePool nodes, BlockPos target, int radius, int verticalRadius) {
+        this.nodes = nodes;
+        this.target = target;
+        this.radius = radius;
+        this.verticalRadius = verticalRadius;
+    }
+
+    public BlockPos getTarget() {
+        return this.target;
+    }
+
+    /**
+     * @return the number of cells from which the target can be reached
+     */
+    public int size() {
+        return this.nodes.size();
+    }
+
+    /**
+     * @param x the x-coordinate of the section
+     * @param y the y-coordinate of the section
+     * @param z the z-coordinate of the section
+     * @return true if the section overlaps the box covered by this field
+     */
+    public boolean overlapsSection(int x, int y, int z) {
+        return (x << 4) + 15 >= this.target.getX() - this.radius && (x << 4) <= this.target.getX() + this.radius
+                && (y << 4) + 15 >= this.target.getY() - this.verticalRadius && (y << 4) <= this.target.getY() + this.verticalRadius
+                && (z << 4) + 15 >= this.target.getZ() - this.radius && (z << 4) <= this.target.getZ() + this.radius;
+    }
+
+    /**
+     * @param section the section, as a long as defined by SectionPos.asLong()
+     * @return true if the section overlaps the box covered by this field
+     */
+    public boolean overlapsSection(long section) {
+        return this.overlapsSection(SectionPos.extractX(section), SectionPos.extractY(section), SectionPos.extractZ(section));
+    }
+
+    /**
+     * @param pos a cell
+     * @return the next cell towards the target, or empty if the target can not be reached from the cell
+     */
+    public Optional<BlockPos> getNextStep(BlockPos pos) {
+        int node = this.nodes.find(pos.toLong());
+        if(node < 0 || this.nodes.parent(node) < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(BlockPos.fromLong(this.nodes.pos(this.nodes.parent(node))));
+    }
+
+    /**
+     * Reads the path from a cell to the target by following the next steps
+     * @param start the cell
+     * @return the path, or empty if the target can not be reached from the cell
+     */
+    public Optional<Path> getPath(BlockPos start) {
+        int node = this.nodes.find(start.toLong());
+        if(node < 0) {
+            // Entities standing on blocks lower than a full block have their feet inside the block
+            node = this.nodes.find(start.up().toLong());
+        }
+        if(node < 0) {
+            return Optional.empty();
+        }
+        List<PathPoint> points = Lists.newArrayList();
+        while(node >= 0) {
+            long pos = this.nodes.pos(node);
+            points.add(new PathPoint(BlockPos.unpackX(pos), BlockPos.unpackY(pos), BlockPos.unpackZ(pos)));
+            node = this.nodes.parent(node);
+        }
+        return Optional.of(new Path(points, this.target, true));
+    }
+
+    /**
+     * Computes a field at once, should be called from a path calculation thread
+     * @param movement movement rules on a view of the world
+     * @param target the target cell
+     * @param radius the horizontal radius
+     * @param verticalRadius the vertical radius
+     * @param maxNodes the maximum number of cells, at most MAX_NODES
+     * @return the field
+     */
+    public static PathFlowField compute(PathMovement movement, BlockPos target, int radius, int verticalRadius, int maxNodes) {
+        Builder builder = new Builder(movement, target, radius, verticalRadius, maxNodes);
+        builder.step(Integer.MAX_VALUE);
+        return builder.build();
+    }
+
+    /**
+     * Computes a field in steps with a limited number of expanded cells, so the work can be spread over several slices.
+     * A builder may be advanced from different threads, but never from two threads at the same time.
+     */
+    public static class Builder {
+        private final PathMovement movement;
+        private final PathNodePool nodes;
+        private final BlockPos target;
+        private final int radius;
+        private final int verticalRadius;
+        private final int limit;
+        private final int[] current;
+
+        /**
+         * @param movement movement rules on a view of the world
+         * @param target the target cell
+         * @param radius the horizontal radius
+         * @param verticalRadius the vertical radius
+         * @param maxNodes the maximum number of cells, at most MAX_NODES
+         */
+        public Builder(PathMovement movement, BlockPos target, int radius, int verticalRadius, int maxNodes) {
+            this.movement = movement;
+            // The field keeps its nodes, so it can not use the pool of the thread
+            this.nodes = new PathNodePool();
+            this.target = target.toImmutable();
+            this.radius = radius;
+            this.verticalRadius = verticalRadius;
+            this.limit = Math.min(maxNodes, MAX_NODES);
+            this.current = new int[1];
+            this.nodes.open(this.nodes.create(this.target.toLong(), 0, 0, -1));
+        }
+
+        /**
+         * @return true if every cell within the bounds has been expanded, or the maximum number of cells is reached
+         */
+        public boolean isDone() {
+            return !this.nodes.hasOpen() || this.nodes.size() >= this.limit;
+        }
+
+        /**
+         * Advances the computation
+         * @param budget the maximum number of cells to expand in this step
+         * @return the number of cells expanded in this step
+         */
+        public int step(int budget) {
+            int expanded = 0;
+            while(expanded < budget && !this.isDone()) {
+                int node = this.nodes.pollOpen();
+                long pos = this.nodes.pos(node);
+                this.current[0] = node;
+                expanded++;
+                this.movement.forEachPredecessor(BlockPos.unpackX(pos), BlockPos.unpackY(pos), BlockPos.unpackZ(pos), (x, y, z, cost) -> {
+                    if(Math.abs(x - this.target.getX()) > this.radius || Math.abs(z - this.target.getZ()) > this.radius
+                            || Math.abs(y - this.target.getY()) > this.verticalRadius) {
+                        return;
+                    }
+                    long previous = BlockPos.pack(x, y, z);
+                    float g = this.nodes.g(this.current[0]) + cost;
+                    int neighbour = this.nodes.find(previous);
+                    if(neighbour < 0) {
+                        this.nodes.open(this.nodes.create(previous, g, 0, this.current[0]));
+                    } else if(!this.nodes.isClosed(neighbour) && g < this.nodes.g(neighbour)) {
+                        this.nodes.update(neighbour, g, this.current[0]);
+                    }
+                });
+            }
+            return expanded;
+        }
+
+        /**
+         * @return the field, only valid once isDone() returns true
+         */
+        public PathFlowField build() {
+            return new PathFlowField(this.nodes, this.target, this.radius, this.verticalRadius);
+        }
+    }
+}
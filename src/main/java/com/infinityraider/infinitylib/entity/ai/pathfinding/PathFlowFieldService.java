@@ -0,0 +1,236 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import com.google.common.collect.Sets;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.MobEntity;
+import net.minecraft.pathfinding.Path;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.util.math.vector.Vector3d;
+import net.minecraft.world.IWorld;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.event.server.FMLServerStoppedEvent;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shares PathFlowFields between all jobs chasing the same target entity.
+ * Instead of running one search per job, one field is computed around the target and every job subscribing to it
+ * reads its path from the field. The field is recomputed when the target has moved more than REBUILD_DISTANCE blocks
+ * or when a section it covers changes, at most once every REBUILD_INTERVAL_MS. A new field is computed in steps by the
+ * jobs which read from it, each step is charged to the slice budget of the job taking it, while the new field is being
+ * computed, jobs keep using the previous one. Fields which have not been used for a while are discarded.
+ */
+public class PathFlowFieldService implements PathSectionCache.IInvalidationListener {
+    private static final PathFlowFieldService INSTANCE = new PathFlowFieldService();
+
+    public static PathFlowFieldService getInstance() {
+        return INSTANCE;
+    }
+
+    /** Minimum number of distinct live jobs which have to chase a target before a field is computed for it */
+    private static final int MIN_SUBSCRIBERS = 2;
+    /** Time in ms after which unused fields are discarded */
+    private static final long EXPIRY_MS = 10000;
+    /** Interval in ticks at which expired fields are discarded */
+    private static final int CLEANUP_INTERVAL = 100;
+    /** Distance in blocks the target has to move away from the origin of the field before it is recomputed */
+    private static final double REBUILD_DISTANCE = 3.0D;
+    /** Minimum time in ms between two computations of the field of the same target */
+    private static final long REBUILD_INTERVAL_MS = 500;
+
+    private final Map<Key, Entry> entries;
+    private int tick;
+
+    private PathFlowFieldService() {
+        this.entries = new ConcurrentHashMap<>();
+        PathSectionCache.getInstance().addListener(this);
+    }
+
+    /**
+     * Registers a job as chaser of a target entity, must be called when the job is queued.
+     * Every job is counted once, queueing the same job again to replan its path does not add a subscriber
+     * @param job the job
+     */
+    public void subscribe(PathFindJob job) {
+        job.target().getTargetEntity().ifPresent(target -> this.getEntry(job, target).subscribe(job));
+    }
+
+    /**
+     * Removes a job as chaser of its target entity, must be called when the job is done and will not be replanned
+     * @param job the job
+     */
+    public void unsubscribe(PathFindJob job) {
+        job.target().getTargetEntity().ifPresent(target -> {
+            Entry entry = this.entries.get(new Key(target, job.options(), MathHelper.ceil(job.entity().getHeight())));
+            if(entry != null) {
+                entry.subscribers.remove(job);
+            }
+        });
+    }
+
+    /**
+     * Reads the path for a job from the field of its target entity, computing or updating the field if needed.
+     * @param job the job
+     * @return the path, or empty if the job has no target entity, too few jobs chase the target, or the start is not covered by the field
+     */
+    public Optional<Path> getPath(PathFindJob job) {
+        Optional<Entity> target = job.target().getTargetEntity();
+        if(!target.isPresent()) {
+            return Optional.empty();
+        }
+        Entry entry = this.getEntry(job, target.get());
+        if(entry.subscribers.size() < MIN_SUBSCRIBERS) {
+            return Optional.empty();
+        }
+        long now = System.currentTimeMillis();
+        entry.lastAccess = now;
+        if(this.needsRebuild(job, entry, now)) {
+            // Only one job advances the new field at a time, the others continue with the previous field
+            if(entry.computing.compareAndSet(false, true)) {
+                try {
+                    this.advance(job, entry, now);
+                } finally {
+                    entry.computing.set(false);
+                }
+            }
+        }
+        PathFlowField field = entry.field;
+        return field == null ? Optional.empty() : field.getPath(job.getStartPos());
+    }
+
+    private boolean needsRebuild(PathFindJob job, Entry entry, long now) {
+        if(entry.builder != null || entry.field == null) {
+            return true;
+        }
+        if(now - entry.builtAt < REBUILD_INTERVAL_MS) {
+            return false;
+        }
+        return entry.dirty || entry.origin.squareDistanceTo(job.getTargetVector()) >= REBUILD_DISTANCE * REBUILD_DISTANCE;
+    }
+
+    private void advance(PathFindJob job, Entry entry, long now) {
+        PathFlowField.Builder builder = entry.builder;
+        if(builder == null) {
+            MobEntity entity = job.entity();
+            Vector3d origin = job.getTargetVector();
+            BlockPos target = new BlockPos(MathHelper.floor(origin.x), MathHelper.floor(origin.y), MathHelper.floor(origin.z));
+            PathMovement movement = new PathMovement(
+                    PathSectionCache.getInstance().createView(entity.getEntityWorld()),
+                    job.options(),
+                    MathHelper.ceil(entity.getHeight()));
+            // Sections changing from here on mark the new field as dirty again
+            entry.dirty = false;
+            builder = new PathFlowField.Builder(movement, target, PathFlowField.DEFAULT_RADIUS, PathFlowField.DEFAULT_VERTICAL_RADIUS, PathFlowField.MAX_NODES);
+            entry.builder = builder;
+            entry.pendingOrigin = origin;
+        }
+        // The job only pays for its own slice, the field is completed by the next jobs reading from it
+        int budget = Math.min(job.getSliceBudget(), job.getRemainingBudget());
+        if(budget > 0) {
+            job.consumeBudget(builder.step(budget));
+        }
+        if(builder.isDone()) {
+            entry.origin = entry.pendingOrigin;
+            entry.field = builder.build();
+            entry.builtAt = now;
+            entry.builder = null;
+        }
+    }
+
+    private Entry getEntry(PathFindJob job, Entity target) {
+        return this.entries.computeIfAbsent(new Key(target, job.options(), MathHelper.ceil(job.entity().getHeight())), key -> new Entry());
+    }
+
+    @Override
+    public void onSectionInvalidated(IWorld world, long sectionKey) {
+        this.entries.forEach((key, entry) -> {
+            PathFlowField field = entry.field;
+            if(field != null && key.target.getEntityWorld() == world && field.overlapsSection(sectionKey)) {
+                entry.dirty = true;
+            }
+        });
+    }
+
+    @Override
+    public void onWorldInvalidated(IWorld world) {
+        this.entries.keySet().removeIf(key -> key.target.getEntityWorld() == world);
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if(event.phase != TickEvent.Phase.END) {
+            return;
+        }
+        this.tick++;
+        if(this.tick % CLEANUP_INTERVAL == 0) {
+            long now = System.currentTimeMillis();
+            this.entries.entrySet().removeIf(e -> {
+                Entry entry = e.getValue();
+                entry.subscribers.removeIf(job -> job.isStopped() || !job.entity().isAlive());
+                return !e.getKey().target.isAlive() || (entry.subscribers.isEmpty() && now - entry.lastAccess > EXPIRY_MS);
+            });
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onServerStopped(FMLServerStoppedEvent event) {
+        this.entries.clear();
+        this.tick = 0;
+    }
+
+    private static final class Key {
+        private final Entity target;
+        private final int profile;
+        private final int height;
+
+        private Key(Entity target, PathCalculator.IPathOptions options, int height) {
+            this.target = target;
+            this.profile = options.getProfile();
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return this.target == other.target && this.profile == other.profile && this.height == other.height;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(this.target) + this.profile) + this.height;
+        }
+    }
+
+    private static final class Entry {
+        private final AtomicBoolean computing = new AtomicBoolean(false);
+        private volatile PathFlowField field;
+        private volatile Vector3d origin = Vector3d.ZERO;
+        private volatile long builtAt;
+        /** The field which is being computed, only accessed by the job holding the computing flag */
+        private volatile PathFlowField.Builder builder;
+        private volatile Vector3d pendingOrigin = Vector3d.ZERO;
+        private volatile boolean dirty;
+        private volatile long lastAccess = System.currentTimeMillis();
+        /** Distinct live jobs chasing the target */
+        private final Set<PathFindJob> subscribers = Sets.newConcurrentHashSet();
+
+        private void subscribe(PathFindJob job) {
+            this.subscribers.add(job);
+            this.lastAccess = System.currentTimeMillis();
+        }
+    }
+}
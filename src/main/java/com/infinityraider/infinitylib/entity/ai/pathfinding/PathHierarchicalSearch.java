@@ -0,0 +1,202 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import net.minecraft.pathfinding.Path;
+import net.minecraft.pathfinding.PathPoint;
+import net.minecraft.util.math.BlockPos;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hierarchical search: first a PathAbstractSearch over the abstract graph of chunk section portals, after which the first
+ * few segments between the waypoints are refined with a PathSearch each. The next segments are refined by a later search,
+ * as the entity advances.
+ *
+ * Like PathSearch, the search state is kept in this object, so the search can be advanced in steps with a limited number
+ * of node expansions. Abstract nodes and refined cells both count as a single node. The node pools of the abstract search
+ * and the segments are acquired from PathNodePool.acquire(), discard() must be called once the search is no longer used.
+ */
+public class PathHierarchicalSearch {
+    private final PathAbstractGraph graph;
+    private final PathMovement movement;
+    private final BlockPos start;
+    private final BlockPos target;
+    private final int maxSegments;
+    private final int maxAbstractNodes;
+    private final int maxSegmentNodes;
+    private final List<BlockPos> cells;
+
+    private PathSearch.Status status;
+    private boolean replanned;
+    private boolean budgetExceeded;
+    private int expanded;
+
+    private PathAbstractSearch plan;
+    private List<BlockPos> waypoints;
+    private int index;
+    private BlockPos from;
+    private PathSearch segment;
+
+    /**
+     * @param graph the abstract graph for the options and height of the entity
+     * @param movement movement rules on a view of the world
+     * @param start the start cell
+     * @param target the target cell
+     * @param waypoints the waypoints which remain to be refined from an earlier search, or null to plan from scratch
+     * @param maxSegments the maximum number of segments to refine
+     * @param maxAbstractNodes the maximum number of abstract nodes to expand
+     * @param maxSegmentNodes the maximum number of nodes to expand when refining a single segment
+     */
+    public PathHierarchicalSearch(PathAbstractGraph graph, PathMovement movement, BlockPos start, BlockPos target,
+                                  @Nullable List<BlockPos> waypoints, int maxSegments, int maxAbstractNodes, int maxSegmentNodes) {
+        this.graph = graph;
+        this.movement = movement;
+        this.start = start;
+        this.target = target;
+        this.maxSegments = maxSegments;
+        this.maxAbstractNodes = maxAbstractNodes;
+        this.maxSegmentNodes = maxSegmentNodes;
+        this.cells = new ArrayList<>();
+        this.status = PathSearch.Status.SEARCHING;
+        this.from = start;
+        if(waypoints == null || waypoints.isEmpty()) {
+            this.replan();
+        } else {
+            this.waypoints = waypoints;
+        }
+    }
+
+    public PathSearch.Status getStatus() {
+        return this.status;
+    }
+
+    /**
+     * @return the number of nodes expanded so far
+     */
+    public int getExpandedCount() {
+        return this.expanded;
+    }
+
+    /**
+     * @return true if the search failed because a maximum number of nodes was expanded, rather than because the target is unreachable
+     */
+    public boolean hasExceededBudget() {
+        return this.budgetExceeded;
+    }
+
+    /**
+     * Advances the search
+     * @param budget the maximum number of nodes to expand in this step
+     * @return the status after this step
+     */
+    public PathSearch.Status step(int budget) {
+        while(this.status == PathSearch.Status.SEARCHING && budget > 0) {
+            if(this.plan != null) {
+                int before = this.plan.getExpandedCount();
+                PathSearch.Status planStatus = this.plan.step(budget);
+                budget -= this.plan.getExpandedCount() - before;
+                this.expanded += this.plan.getExpandedCount() - before;
+                if(planStatus != PathSearch.Status.SEARCHING) {
+                    this.onPlanned();
+                }
+                continue;
+            }
+            if(this.segment == null) {
+                if(this.index >= this.waypoints.size() || this.index >= this.maxSegments) {
+                    this.status = PathSearch.Status.FOUND;
+                    break;
+                }
+                this.segment = new PathSearch(this.movement, PathNodePool.acquire(), this.from, this.waypoints.get(this.index), this.maxSegmentNodes);
+            }
+            int before = this.segment.getExpandedCount();
+            PathSearch.Status segmentStatus = this.segment.step(budget);
+            budget -= this.segment.getExpandedCount() - before;
+            this.expanded += this.segment.getExpandedCount() - before;
+            if(segmentStatus != PathSearch.Status.SEARCHING) {
+                this.onRefined();
+            }
+        }
+        return this.status;
+    }
+
+    private void replan() {
+        this.replanned = true;
+        this.waypoints = null;
+        this.plan = new PathAbstractSearch(this.graph, this.movement, PathNodePool.acquire(), this.start, this.target, this.maxAbstractNodes);
+    }
+
+    private void onPlanned() {
+        PathAbstractSearch plan = this.plan;
+        this.plan = null;
+        PathNodePool.release(plan.getNodePool());
+        if(plan.getStatus() != PathSearch.Status.FOUND) {
+            this.budgetExceeded = plan.hasExceededBudget();
+            this.status = PathSearch.Status.FAILED;
+            return;
+        }
+        List<BlockPos> waypoints = plan.getWaypoints().orElse(Collections.emptyList());
+        // The first waypoint is the start itself
+        this.waypoints = waypoints.size() > 1 ? waypoints.subList(1, waypoints.size()) : Collections.singletonList(this.target);
+    }
+
+    private void onRefined() {
+        PathSearch segment = this.segment;
+        this.segment = null;
+        PathNodePool.release(segment.getNodePool());
+        if(segment.getStatus() == PathSearch.Status.FOUND) {
+            List<BlockPos> segmentCells = segment.getCells();
+            this.cells.addAll(this.cells.isEmpty() ? segmentCells : segmentCells.subList(1, segmentCells.size()));
+            this.from = this.waypoints.get(this.index);
+            this.index++;
+        } else if(!this.cells.isEmpty()) {
+            // The remaining segments are refined, or replanned, by the next search
+            this.status = PathSearch.Status.FOUND;
+        } else if(this.replanned) {
+            this.budgetExceeded = segment.hasExceededBudget();
+            this.status = PathSearch.Status.FAILED;
+        } else {
+            // The plan is outdated, start over from the current position
+            this.replan();
+        }
+    }
+
+    /**
+     * @return the refined part of the path, or null if the search has not (yet) found it
+     */
+    @Nullable
+    public Path getPath() {
+        if(this.status != PathSearch.Status.FOUND) {
+            return null;
+        }
+        List<PathPoint> points = new ArrayList<>(this.cells.size());
+        this.cells.forEach(cell -> points.add(new PathPoint(cell.getX(), cell.getY(), cell.getZ())));
+        return new Path(points, this.target, this.getRemainingWaypoints() == null);
+    }
+
+    /**
+     * @return the waypoints which remain to be refined, or null if the path is refined up to the target
+     */
+    @Nullable
+    public List<BlockPos> getRemainingWaypoints() {
+        if(this.waypoints == null || this.index >= this.waypoints.size()) {
+            return null;
+        }
+        return new ArrayList<>(this.waypoints.subList(this.index, this.waypoints.size()));
+    }
+
+    /**
+     * Releases the node pools which are still in use, the search may not be used afterwards
+     */
+    public void discard() {
+        if(this.plan != null) {
+            PathNodePool.release(this.plan.getNodePool());
+            this.plan = null;
+        }
+        if(this.segment != null) {
+            PathNodePool.release(this.segment.getNodePool());
+            this.segment = null;
+        }
+    }
+}
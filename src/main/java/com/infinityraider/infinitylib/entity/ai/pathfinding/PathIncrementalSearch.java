@@ -0,0 +1,417 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.SectionPos;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lifelong Planning A* (LPA*) search from a fixed root cell, used to replan paths to moving targets.
+ *
+ * Distances from the root remain valid when the goal moves, so moving the goal only requires the open set to be
+ * re-keyed, after which the search continues from where it was. When blocks change, only the nodes in the changed
+ * sections are re-evaluated, and the inconsistencies are propagated as far as needed.
+ * The number of nodes is bounded, once the bound is reached the search has to be discarded.
+ * An update may be limited to a number of node expansions, the next update then continues where it stopped.
+ */
+public class PathIncrementalSearch {
+    /** Maximum number of nodes kept by a search */
+    public static final int MAX_NODES = 16384;
+
+    private static final float INF = Float.POSITIVE_INFINITY;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int NOT_OPEN = -1;
+
+    private final Long2IntOpenHashMap index;
+    private final long root;
+
+    private long[] pos;
+    private float[] g;
+    private float[] rhs;
+    private int[] parent;
+    private int[] heapIndex;
+    private float[] key1;
+    private float[] key2;
+    private int size;
+    private int[] heap;
+    private int heapSize;
+
+    private PathMovement movement;
+    private BlockPos goal;
+    private long goalPos;
+    private int current;
+
+    private PathSearch.Status status;
+    private int lastExpanded;
+    private boolean boundExceeded;
+
+    public PathIncrementalSearch(BlockPos root) {
+        this.index = new Long2IntOpenHashMap(INITIAL_CAPACITY);
+        this.index.defaultReturnValue(-1);
+        this.root = root.toLong();
+        this.pos = new long[INITIAL_CAPACITY];
+        this.g = new float[INITIAL_CAPACITY];
+        this.rhs = new float[INITIAL_CAPACITY];
+        this.parent = new int[INITIAL_CAPACITY];
+        this.heapIndex = new int[INITIAL_CAPACITY];
+        this.key1 = new float[INITIAL_CAPACITY];
+        this.key2 = new float[INITIAL_CAPACITY];
+        this.heap = new int[INITIAL_CAPACITY];
+        this.goalPos = Long.MIN_VALUE;
+        this.status = PathSearch.Status.SEARCHING;
+    }
+
+    public BlockPos getRoot() {
+        return BlockPos.fromLong(this.root);
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return the status after the last update, SEARCHING if it ran out of budget before the goal was settled
+     */
+    public PathSearch.Status getStatus() {
+        return this.status;
+    }
+
+    /**
+     * @return the number of nodes expanded during the last update
+     */
+    public int getLastExpandedCount() {
+        return this.lastExpanded;
+    }
+
+    /**
+     * @return true if the last update failed because the maximum number of nodes was reached, the search has to be discarded
+     */
+    public boolean hasExceededBound() {
+        return this.boundExceeded;
+    }
+
+    /**
+     * Updates the search and brings it up to date
+     * @param movement movement rules on a fresh view of the world
+     * @param goal the current goal, may differ from the previous update
+     * @param changedSections sections which have changed since the previous update
+     * @param budget maximum number of nodes to expand, if the budget runs out the status remains SEARCHING
+     * @return the cells from the root to the goal, or an empty list if the goal is unreachable, the budget ran out or a bound was exceeded
+     */
+    public List<BlockPos> update(PathMovement movement, BlockPos goal, LongSet changedSections, int budget) {
+        boolean first = this.movement == null;
+        this.movement = movement;
+        if(first) {
+            int node = this.getOrCreate(this.root);
+            this.rhs[node] = 0;
+            this.goal = goal;
+            this.goalPos = goal.toLong();
+            this.push(node);
+        } else {
+            if(!changedSections.isEmpty()) {
+                this.repair(changedSections);
+            }
+            if(goal.toLong() != this.goalPos) {
+                this.goal = goal;
+                this.goalPos = goal.toLong();
+                this.rekey();
+            }
+        }
+        this.status = this.computeShortestPath(budget);
+        return this.status == PathSearch.Status.FOUND ? this.collect(this.index.get(this.goalPos)) : Collections.emptyList();
+    }
+
+    /**
+     * @return the cells from the root to the settled node closest to the goal, or an empty list if there is no such node besides the root
+     */
+    public List<BlockPos> getBestEffortCells() {
+        int best = -1;
+        float bestH = INF;
+        for(int node = 0; node < this.size; node++) {
+            if(this.g[node] < INF && this.pos[node] != this.root) {
+                long p = this.pos[node];
+                float h = PathMovement.heuristic(BlockPos.unpackX(p), BlockPos.unpackY(p), BlockPos.unpackZ(p),
+                        this.goal.getX(), this.goal.getY(), this.goal.getZ());
+                if(h < bestH) {
+                    best = node;
+                    bestH = h;
+                }
+            }
+        }
+        return best < 0 ? Collections.emptyList() : this.collect(best);
+    }
+
+    private PathSearch.Status computeShortestPath(int budget) {
+        this.lastExpanded = 0;
+        this.boundExceeded = false;
+        while(this.heapSize > 0) {
+            int goalNode = this.index.get(this.goalPos);
+            int top = this.heap[0];
+            if(goalNode >= 0 && this.rhs[goalNode] == this.g[goalNode] && this.compareToKey(top, goalNode) >= 0) {
+                break;
+            }
+            if(this.size >= MAX_NODES) {
+                this.boundExceeded = true;
+                return PathSearch.Status.FAILED;
+            }
+            if(budget-- <= 0) {
+                return PathSearch.Status.SEARCHING;
+            }
+            this.lastExpanded++;
+            this.pop();
+            this.current = top;
+            long p = this.pos[top];
+            int x = BlockPos.unpackX(p);
+            int y = BlockPos.unpackY(p);
+            int z = BlockPos.unpackZ(p);
+            if(this.g[top] > this.rhs[top]) {
+                // Overconsistent: the node got closer to the root
+                this.g[top] = this.rhs[top];
+                this.movement.forEachNeighbour(x, y, z, this::improve);
+            } else {
+                // Underconsistent: the node got further from the root
+                this.g[top] = INF;
+                this.reevaluate(top);
+                this.movement.forEachNeighbour(x, y, z, this::reevaluateChild);
+            }
+        }
+        int goalNode = this.index.get(this.goalPos);
+        return goalNode >= 0 && this.g[goalNode] < INF ? PathSearch.Status.FOUND : PathSearch.Status.FAILED;
+    }
+
+    private void improve(int x, int y, int z, float cost) {
+        int node = this.getOrCreate(BlockPos.pack(x, y, z));
+        float candidate = this.g[this.current] + cost;
+        if(node != this.index.get(this.root) && candidate < this.rhs[node]) {
+            this.rhs[node] = candidate;
+            this.parent[node] = this.current;
+            this.updateQueue(node);
+        }
+    }
+
+    private void reevaluateChild(int x, int y, int z, float cost) {
+        int node = this.index.get(BlockPos.pack(x, y, z));
+        if(node >= 0 && this.parent[node] == this.current) {
+            this.reevaluate(node);
+        }
+    }
+
+    /**
+     * Recomputes the rhs value of a node from its predecessors
+     */
+    private void reevaluate(int node) {
+        if(this.pos[node] != this.root) {
+            this.rhs[node] = INF;
+            this.parent[node] = -1;
+            long p = this.pos[node];
+            this.movement.forEachPredecessor(BlockPos.unpackX(p), BlockPos.unpackY(p), BlockPos.unpackZ(p), (x, y, z, cost) -> {
+                int predecessor = this.index.get(BlockPos.pack(x, y, z));
+                if(predecessor >= 0 && this.g[predecessor] + cost < this.rhs[node]) {
+                    this.rhs[node] = this.g[predecessor] + cost;
+                    this.parent[node] = predecessor;
+                }
+            });
+        }
+        this.updateQueue(node);
+    }
+
+    /**
+     * Re-evaluates all nodes in and around changed sections
+     */
+    private void repair(LongSet changedSections) {
+        // Nodes created while repairing are new and therefore already up to date
+        int count = this.size;
+        for(int node = 0; node < count; node++) {
+            long p = this.pos[node];
+            int x = BlockPos.unpackX(p);
+            int y = BlockPos.unpackY(p);
+            int z = BlockPos.unpackZ(p);
+            // Moves depend on the blocks around a cell, so cells close to a changed section are affected as well
+            if(this.isNear(changedSections, x, y, z)) {
+                this.reevaluate(node);
+                this.current = node;
+                if(this.g[node] < INF) {
+                    this.movement.forEachNeighbour(x, y, z, this::improve);
+                }
+                this.movement.forEachNeighbour(x, y, z, this::reevaluateChild);
+            }
+        }
+    }
+
+    private boolean isNear(LongSet sections, int x, int y, int z) {
+        // Moves read the blocks next to the cells they connect, and from the floor below a fall up to the head after a jump
+        int minY = (y - this.movement.getReachBelow()) >> 4;
+        int maxY = (y + this.movement.getReachAbove()) >> 4;
+        for(int sX = (x - 2) >> 4; sX <= (x + 2) >> 4; sX++) {
+            for(int sY = minY; sY <= maxY; sY++) {
+                for(int sZ = (z - 2) >> 4; sZ <= (z + 2) >> 4; sZ++) {
+                    if(sections.contains(SectionPos.asLong(sX, sY, sZ))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private List<BlockPos> collect(int node) {
+        List<BlockPos> cells = Lists.newArrayList();
+        while(node >= 0 && cells.size() <= this.size) {
+            cells.add(BlockPos.fromLong(this.pos[node]));
+            if(this.pos[node] == this.root) {
+                Collections.reverse(cells);
+                return cells;
+            }
+            node = this.parent[node];
+        }
+        return Collections.emptyList();
+    }
+
+    private int getOrCreate(long p) {
+        int node = this.index.get(p);
+        if(node >= 0) {
+            return node;
+        }
+        if(this.size >= this.pos.length) {
+            this.grow();
+        }
+        node = this.size++;
+        this.pos[node] = p;
+        this.g[node] = INF;
+        this.rhs[node] = INF;
+        this.parent[node] = -1;
+        this.heapIndex[node] = NOT_OPEN;
+        this.index.put(p, node);
+        return node;
+    }
+
+
+    //Open set, a binary heap ordered lexicographically on [min(g, rhs) + h, min(g, rhs)]
+    //-----------------------------------------------------------------------------------
+
+    private void updateQueue(int node) {
+        if(this.g[node] != this.rhs[node]) {
+            if(this.heapIndex[node] == NOT_OPEN) {
+                this.push(node);
+            } else {
+                this.computeKey(node);
+                this.siftUp(this.heapIndex[node]);
+                this.siftDown(this.heapIndex[node]);
+            }
+        } else if(this.heapIndex[node] != NOT_OPEN) {
+            this.remove(node);
+        }
+    }
+
+    private void computeKey(int node) {
+        float min = Math.min(this.g[node], this.rhs[node]);
+        long p = this.pos[node];
+        this.key2[node] = min;
+        this.key1[node] = min + PathMovement.heuristic(BlockPos.unpackX(p), BlockPos.unpackY(p), BlockPos.unpackZ(p),
+                this.goal.getX(), this.goal.getY(), this.goal.getZ());
+    }
+
+    private void rekey() {
+        for(int i = 0; i < this.heapSize; i++) {
+            this.computeKey(this.heap[i]);
+        }
+        for(int i = (this.heapSize >>> 1) - 1; i >= 0; i--) {
+            this.siftDown(i);
+        }
+    }
+
+    /**
+     * Compares the key of a node to the key of another node, nodes not in the open set have their actual key computed
+     */
+    private int compareToKey(int node, int other) {
+        float otherMin = Math.min(this.g[other], this.rhs[other]);
+        long p = this.pos[other];
+        float otherKey1 = otherMin + PathMovement.heuristic(BlockPos.unpackX(p), BlockPos.unpackY(p), BlockPos.unpackZ(p),
+                this.goal.getX(), this.goal.getY(), this.goal.getZ());
+        int result = Float.compare(this.key1[node], otherKey1);
+        return result != 0 ? result : Float.compare(this.key2[node], otherMin);
+    }
+
+    private boolean less(int a, int b) {
+        return this.key1[a] < this.key1[b] || (this.key1[a] == this.key1[b] && this.key2[a] < this.key2[b]);
+    }
+
+    private void push(int node) {
+        this.computeKey(node);
+        if(this.heapSize >= this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, this.heap.length * 2);
+        }
+        this.heap[this.heapSize] = node;
+        this.heapIndex[node] = this.heapSize;
+        this.heapSize++;
+        this.siftUp(this.heapSize - 1);
+    }
+
+    private void pop() {
+        this.remove(this.heap[0]);
+    }
+
+    private void remove(int node) {
+        int i = this.heapIndex[node];
+        this.heapSize--;
+        this.heapIndex[node] = NOT_OPEN;
+        if(i < this.heapSize) {
+            int moved = this.heap[this.heapSize];
+            this.heap[i] = moved;
+            this.heapIndex[moved] = i;
+            this.siftUp(i);
+            this.siftDown(this.heapIndex[moved]);
+        }
+    }
+
+    private void siftUp(int i) {
+        int node = this.heap[i];
+        while(i > 0) {
+            int p = (i - 1) >>> 1;
+            if(!this.less(node, this.heap[p])) {
+                break;
+            }
+            this.heap[i] = this.heap[p];
+            this.heapIndex[this.heap[i]] = i;
+            i = p;
+        }
+        this.heap[i] = node;
+        this.heapIndex[node] = i;
+    }
+
+    private void siftDown(int i) {
+        int node = this.heap[i];
+        int half = this.heapSize >>> 1;
+        while(i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if(right < this.heapSize && this.less(this.heap[right], this.heap[child])) {
+                child = right;
+            }
+            if(!this.less(this.heap[child], node)) {
+                break;
+            }
+            this.heap[i] = this.heap[child];
+            this.heapIndex[this.heap[i]] = i;
+            i = child;
+        }
+        this.heap[i] = node;
+        this.heapIndex[node] = i;
+    }
+
+    private void grow() {
+        int capacity = this.pos.length * 2;
+        this.pos = Arrays.copyOf(this.pos, capacity);
+        this.g = Arrays.copyOf(this.g, capacity);
+        this.rhs = Arrays.copyOf(this.rhs, capacity);
+        this.parent = Arrays.copyOf(this.parent, capacity);
+        this.heapIndex = Arrays.copyOf(this.heapIndex, capacity);
+        this.key1 = Arrays.copyOf(this.key1, capacity);
+        this.key2 = Arrays.copyOf(this.key2, capacity);
+    }
+}
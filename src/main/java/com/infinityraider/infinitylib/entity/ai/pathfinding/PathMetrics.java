@@ -0,0 +1,392 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import com.google.common.collect.Lists;
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.command.CommandSource;
+import net.minecraft.command.Commands;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.StringTextComponent;
+import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Telemetry of the PathCalculator: job counts per outcome, histograms of latency, processing time and expanded nodes,
+ * cache hit rates and the slowest recent jobs.
+ * Gathering is disabled by default, while disabled every recording method returns after a single volatile read.
+ *
+ * The data can be queried through this class, or in game with the command "/infinitylib pathfinding [enable|disable|reset]".
+ */
+public class PathMetrics {
+    private static final PathMetrics INSTANCE = new PathMetrics();
+
+    public static PathMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /** Number of recent jobs kept to determine the slowest jobs */
+    private static final int RECENT_JOBS = 128;
+    /** Number of slowest jobs reported by the command */
+    private static final int REPORTED_JOBS = 5;
+
+    private volatile boolean enabled;
+
+    private final LongAdder queued;
+    private final LongAdder finished;
+    private final LongAdder partial;
+    private final LongAdder failed;
+    private final LongAdder cancelled;
+    private final LongAdder sectionHits;
+    private final LongAdder sectionMisses;
+
+    private final Histogram latency;
+    private final Histogram processingTime;
+    private final Histogram expandedNodes;
+
+    private final ArrayDeque<JobRecord> recentJobs;
+
+    private PathMetrics() {
+        this.queued = new LongAdder();
+        this.finished = new LongAdder();
+        this.partial = new LongAdder();
+        this.failed = new LongAdder();
+        this.cancelled = new LongAdder();
+        this.sectionHits = new LongAdder();
+        this.sectionMisses = new LongAdder();
+        this.latency = new Histogram();
+        this.processingTime = new Histogram();
+        this.expandedNodes = new Histogram();
+        this.recentJobs = new ArrayDeque<>(RECENT_JOBS);
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /** Resets all gathered data */
+    public void reset() {
+        this.queued.reset();
+        this.finished.reset();
+        this.partial.reset();
+        this.failed.reset();
+        this.cancelled.reset();
+        this.sectionHits.reset();
+        this.sectionMisses.reset();
+        this.latency.reset();
+        this.processingTime.reset();
+        this.expandedNodes.reset();
+        synchronized (this.recentJobs) {
+            this.recentJobs.clear();
+        }
+    }
+
+
+    //Recording
+    //---------
+
+    void onJobQueued(PathFindJob job) {
+        if(this.enabled) {
+            this.queued.increment();
+            job.resetMetrics(System.nanoTime());
+        }
+    }
+
+    void onJobFinished() {
+        if(this.enabled) {
+            this.finished.increment();
+        }
+    }
+
+    void onJobFinishedPartially() {
+        if(this.enabled) {
+            this.partial.increment();
+        }
+    }
+
+    void onJobFailed() {
+        if(this.enabled) {
+            this.failed.increment();
+        }
+    }
+
+    void onJobCancelled() {
+        if(this.enabled) {
+            this.cancelled.increment();
+        }
+    }
+
+    void onSectionLookup(boolean hit) {
+        if(this.enabled) {
+            (hit ? this.sectionHits : this.sectionMisses).increment();
+        }
+    }
+
+    /**
+     * Records the statistics of a job once a worker is done with it
+     * @param job the job
+     * @param expanded the number of nodes expanded by the job's search, 0 if it did not search
+     */
+    void onJobProcessed(PathFindJob job, int expanded) {
+        if(!this.enabled) {
+            return;
+        }
+        long queuedTime = job.getQueuedTime();
+        if(queuedTime != 0) {
+            this.latency.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - queuedTime));
+        }
+        long processing = TimeUnit.NANOSECONDS.toMicros(job.getProcessingTime());
+        this.processingTime.record(processing);
+        this.expandedNodes.record(expanded);
+        JobRecord record = new JobRecord(job.getStartPos(), job.getTarget(), job.options().getProfile(), processing, expanded);
+        synchronized (this.recentJobs) {
+            if(this.recentJobs.size() >= RECENT_JOBS) {
+                this.recentJobs.removeFirst();
+            }
+            this.recentJobs.addLast(record);
+        }
+    }
+
+
+    //Queries
+    //-------
+
+    public long getQueuedCount() {
+        return this.queued.sum();
+    }
+
+    public long getFinishedCount() {
+        return this.finished.sum();
+    }
+
+    public long getPartiallyFinishedCount() {
+        return this.partial.sum();
+    }
+
+    public long getFailedCount() {
+        return this.failed.sum();
+    }
+
+    public long getCancelledCount() {
+        return this.cancelled.sum();
+    }
+
+    /**
+     * @return histogram of the time in microseconds between queueing a job and a worker being done with it
+     */
+    public Histogram getLatency() {
+        return this.latency;
+    }
+
+    /**
+     * @return histogram of the time in microseconds the workers spent on a job
+     */
+    public Histogram getProcessingTime() {
+        return this.processingTime;
+    }
+
+    /**
+     * @return histogram of the number of nodes expanded per job
+     */
+    public Histogram getExpandedNodes() {
+        return this.expandedNodes;
+    }
+
+    /**
+     * @return the fraction of section snapshot lookups which did not have to wait for the section to be built
+     */
+    public double getSectionHitRate() {
+        long hits = this.sectionHits.sum();
+        long total = hits + this.sectionMisses.sum();
+        return total == 0 ? 0 : ((double) hits) / total;
+    }
+
+    /**
+     * @param count the maximum number of jobs
+     * @return the recent jobs with the highest processing time, slowest first
+     */
+    public List<JobRecord> getSlowestRecentJobs(int count) {
+        List<JobRecord> jobs;
+        synchronized (this.recentJobs) {
+            jobs = Lists.newArrayList(this.recentJobs);
+        }
+        jobs.sort(Comparator.comparingLong(JobRecord::getProcessingTime).reversed());
+        return jobs.size() > count ? jobs.subList(0, count) : jobs;
+    }
+
+
+    //Debug command
+    //-------------
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onRegisterCommands(RegisterCommandsEvent event) {
+        this.registerCommand(event.getDispatcher());
+    }
+
+    private void registerCommand(CommandDispatcher<CommandSource> dispatcher) {
+        dispatcher.register(Commands.literal("infinitylib")
+                .requires(source -> source.hasPermissionLevel(2))
+                .then(Commands.literal("pathfinding")
+                        .executes(this::report)
+                        .then(Commands.literal("enable").executes(context -> this.toggle(context, true)))
+                        .then(Commands.literal("disable").executes(context -> this.toggle(context, false)))
+                        .then(Commands.literal("reset").executes(context -> {
+                            this.reset();
+                            return this.feedback(context, "Path finding metrics reset");
+                        }))));
+    }
+
+    private int toggle(CommandContext<CommandSource> context, boolean enabled) {
+        this.setEnabled(enabled);
+        return this.feedback(context, "Path finding metrics " + (enabled ? "enabled" : "disabled"));
+    }
+
+    private int report(CommandContext<CommandSource> context) {
+        if(!this.isEnabled()) {
+            return this.feedback(context, "Path finding metrics are disabled, use \"/infinitylib pathfinding enable\"");
+        }
+        PathCalculator calculator = PathCalculator.getInstance();
+        this.feedback(context, "Jobs: " + calculator.getQueuedJobCount() + " queued, " + calculator.getInFlightJobCount() + " in flight");
+        this.feedback(context, "Totals: " + this.getQueuedCount() + " queued, " + this.getFinishedCount() + " finished, "
+                + this.getPartiallyFinishedCount() + " partial, " + this.getFailedCount() + " failed, " + this.getCancelledCount() + " cancelled");
+        this.feedback(context, "Latency (us): " + this.getLatency());
+        this.feedback(context, "Processing (us): " + this.getProcessingTime());
+        this.feedback(context, "Nodes expanded: " + this.getExpandedNodes());
+        this.feedback(context, String.format("Hit rates: results %.1f%%, sections %.1f%%",
+                100 * calculator.getResultCache().getHitRate(), 100 * this.getSectionHitRate()));
+        for(JobRecord job : this.getSlowestRecentJobs(REPORTED_JOBS)) {
+            this.feedback(context, " - " + job);
+        }
+        return 1;
+    }
+
+    private int feedback(CommandContext<CommandSource> context, String message) {
+        context.getSource().sendFeedback(new StringTextComponent(message), false);
+        return 1;
+    }
+
+    /**
+     * Lock-free histogram with power of two buckets, values are rounded up to the next power of two
+     */
+    public static final class Histogram {
+        private static final int BUCKETS = 64;
+
+        private final AtomicLongArray counts;
+        private final LongAdder count;
+        private final LongAdder sum;
+
+        private Histogram() {
+            this.counts = new AtomicLongArray(BUCKETS);
+            this.count = new LongAdder();
+            this.sum = new LongAdder();
+        }
+
+        private void record(long value) {
+            value = Math.max(0, value);
+            this.counts.incrementAndGet(value == 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(value - 1));
+            this.count.increment();
+            this.sum.add(value);
+        }
+
+        private void reset() {
+            for(int i = 0; i < BUCKETS; i++) {
+                this.counts.set(i, 0);
+            }
+            this.count.reset();
+            this.sum.reset();
+        }
+
+        public long getCount() {
+            return this.count.sum();
+        }
+
+        public double getMean() {
+            long count = this.getCount();
+            return count == 0 ? 0 : ((double) this.sum.sum()) / count;
+        }
+
+        /**
+         * @param percentile the percentile, between 0 and 1
+         * @return the upper bound of the bucket containing the percentile
+         */
+        public long getPercentile(double percentile) {
+            long target = (long) Math.ceil(percentile * this.getCount());
+            long seen = 0;
+            for(int i = 0; i < BUCKETS; i++) {
+                seen += this.counts.get(i);
+                if(seen >= Math.max(1, target)) {
+                    return 1L << Math.min(i, BUCKETS - 2);
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d, mean=%.0f, p50<=%d, p90<=%d, p99<=%d",
+                    this.getCount(), this.getMean(), this.getPercentile(0.5), this.getPercentile(0.9), this.getPercentile(0.99));
+        }
+    }
+
+    /**
+     * Statistics of a single processed job
+     */
+    public static final class JobRecord {
+        private final BlockPos start;
+        private final BlockPos target;
+        private final int profile;
+        private final long processingTime;
+        private final int expanded;
+
+        private JobRecord(BlockPos start, BlockPos target, int profile, long processingTime, int expanded) {
+            this.start = start;
+            this.target = target;
+            this.profile = profile;
+            this.processingTime = processingTime;
+            this.expanded = expanded;
+        }
+
+        public BlockPos getStart() {
+            return this.start;
+        }
+
+        public BlockPos getTarget() {
+            return this.target;
+        }
+
+        /**
+         * @return the options profile, see IPathOptions.getProfile()
+         */
+        public int getProfile() {
+            return this.profile;
+        }
+
+        /**
+         * @return the time in microseconds the workers spent on the job
+         */
+        public long getProcessingTime() {
+            return this.processingTime;
+        }
+
+        public int getExpandedNodes() {
+            return this.expanded;
+        }
+
+        @Override
+        public String toString() {
+            return this.processingTime + "us, " + this.expanded + " nodes, (" + this.start.getX() + ", " + this.start.getY() + ", " + this.start.getZ()
+                    + ") -> (" + this.target.getX() + ", " + this.target.getY() + ", " + this.target.getZ() + "), profile " + Integer.toHexString(this.profile);
+        }
+    }
+}
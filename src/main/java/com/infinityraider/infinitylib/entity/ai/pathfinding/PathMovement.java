@@ -0,0 +1,265 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+/**
+ * Movement rules for path searches, generates the cells an entity can move to from a given cell.
+ * Cells are the position of the entity's feet, the entity occupies a column of cells as high as the entity.
+ * All IPathOptions flags are taken into account:
+ *  - doors: closed wooden doors can only be passed if the entity can open doors
+ *  - ladders: climbable blocks can be moved through vertically
+ *  - wall climbing: the entity can move vertically while next to a solid block
+ *  - swimming: liquid cells can be entered and moved through in all directions
+ *  - flying: no floor is required and the entity can move vertically through open cells
+ *  - maxFallHeight / maxJumpHeight: the maximum height difference when moving horizontally
+ */
+public class PathMovement {
+    public static final float COST_STRAIGHT = 1.0F;
+    public static final float COST_DIAGONAL = 1.4142135F;
+    public static final float COST_VERTICAL = 1.0F;
+    public static final float COST_CLIMB = 1.5F;
+    public static final float COST_PER_HEIGHT = 0.5F;
+    public static final float COST_LIQUID = 1.0F;
+    public static final float COST_DOOR = 1.0F;
+
+    /** Weight of vertical distance in the heuristic, may not exceed the minimum cost per block of vertical movement */
+    public static final float HEURISTIC_VERTICAL = COST_PER_HEIGHT;
+
+    private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] DZ = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final IPathWorld world;
+    private final PathCalculator.IPathOptions options;
+    private final int height;
+    private final ReverseMove reverseMove;
+
+    public PathMovement(IPathWorld world, PathCalculator.IPathOptions options, int height) {
+        this.world = world;
+        this.options = options;
+        this.height = Math.max(1, height);
+        this.reverseMove = new ReverseMove();
+    }
+
+    public IPathWorld getWorld() {
+        return this.world;
+    }
+
+    public PathCalculator.IPathOptions getOptions() {
+        return this.options;
+    }
+
+    /**
+     * @return the number of blocks below a cell which a move from or to that cell may read, falls read down to the floor below their end
+     */
+    public int getReachBelow() {
+        return Math.max(1, Math.max(this.options.maxFallHeight(), this.options.maxJumpHeight())) + 1;
+    }
+
+    /**
+     * @return the number of blocks above a cell which a move from or to that cell may read, jumps read the entity's column above their end
+     */
+    public int getReachAbove() {
+        return Math.max(1, Math.max(this.options.maxFallHeight(), this.options.maxJumpHeight())) + this.height;
+    }
+
+    /**
+     * Generates all cells reachable with a single move from a cell
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @param consumer consumer accepting the reachable cells and the cost to move there
+     */
+    public void forEachNeighbour(int x, int y, int z, INeighbourConsumer consumer) {
+        boolean fly = this.options.canFly();
+        for (int i = 0; i < DX.length; i++) {
+            int nx = x + DX[i];
+            int nz = z + DZ[i];
+            boolean diagonal = i >= 4;
+            if (diagonal && !(this.fits(nx, y, z) && this.fits(x, y, nz))) {
+                // no cutting corners
+                continue;
+            }
+            float cost = diagonal ? COST_DIAGONAL : COST_STRAIGHT;
+            if (this.fits(nx, y, nz)) {
+                if (fly || this.isSupported(nx, y, nz)) {
+                    consumer.accept(nx, y, nz, cost + this.getCellCost(nx, y, nz));
+                } else if (!diagonal) {
+                    this.tryFall(nx, y, nz, cost, consumer);
+                }
+            } else if (!fly && !diagonal) {
+                this.tryJump(x, y, z, nx, nz, cost, consumer);
+            }
+        }
+        this.forEachVerticalNeighbour(x, y, z, fly, consumer);
+    }
+
+    /**
+     * Generates all cells from which a cell can be reached with a single move, the reverse of forEachNeighbour()
+     * @param x the x-coordinate of the cell
+     * @param y the y-coordinate of the cell
+     * @param z the z-coordinate of the cell
+     * @param consumer consumer accepting the cells and the cost to move from there to the given cell
+     */
+    public void forEachPredecessor(int x, int y, int z, INeighbourConsumer consumer) {
+        // Jumps end higher than they start and falls end lower, vertical moves change the height by one
+        int below = Math.max(1, this.options.maxJumpHeight());
+        int above = Math.max(1, this.options.maxFallHeight());
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                for (int dy = -below; dy <= above; dy++) {
+                    if ((dx == 0 && dz == 0 && dy == 0) || !this.fits(x + dx, y + dy, z + dz)) {
+                        continue;
+                    }
+                    float cost = this.reverseMove.find(x + dx, y + dy, z + dz, x, y, z);
+                    if (cost >= 0) {
+                        consumer.accept(x + dx, y + dy, z + dz, cost);
+                    }
+                }
+            }
+        }
+    }
+
+    private void tryFall(int x, int y, int z, float cost, INeighbourConsumer consumer) {
+        for (int d = 1; d <= this.options.maxFallHeight(); d++) {
+            if (!this.isPassable(x, y - d, z)) {
+                return;
+            }
+            if (this.isSupported(x, y - d, z)) {
+                consumer.accept(x, y - d, z, cost + d * COST_PER_HEIGHT + this.getCellCost(x, y - d, z));
+                return;
+            }
+        }
+    }
+
+    private void tryJump(int x, int y, int z, int nx, int nz, float cost, INeighbourConsumer consumer) {
+        for (int j = 1; j <= this.options.maxJumpHeight(); j++) {
+            // Headroom above the current cell
+            if (!this.isPassable(x, y + this.height - 1 + j, z)) {
+                return;
+            }
+            if (this.fits(nx, y + j, nz)) {
+                if (this.isSupported(nx, y + j, nz)) {
+                    consumer.accept(nx, y + j, nz, cost + j * COST_PER_HEIGHT + this.getCellCost(nx, y + j, nz));
+                }
+                return;
+            }
+        }
+    }
+
+    private void forEachVerticalNeighbour(int x, int y, int z, boolean fly, INeighbourConsumer consumer) {
+        int type = this.world.getCellType(x, y, z);
+        boolean swimming = type == PathCellType.LIQUID && this.options.canSwim();
+        boolean climbing = this.options.canClimbWalls() && this.isNextToWall(x, y, z);
+        boolean ladder = this.options.canClimbLadders() && type == PathCellType.LADDER;
+        // up
+        if (fly || swimming || climbing || ladder) {
+            if (this.fits(x, y + 1, z)) {
+                consumer.accept(x, y + 1, z, (fly || swimming ? COST_VERTICAL : COST_CLIMB) + this.getCellCost(x, y + 1, z));
+            }
+        }
+        // down, falls are already handled by horizontal movement
+        boolean ladderBelow = this.options.canClimbLadders() && this.world.getCellType(x, y - 1, z) == PathCellType.LADDER;
+        if (fly || swimming || climbing || ladderBelow) {
+            if (this.fits(x, y - 1, z)) {
+                consumer.accept(x, y - 1, z, (fly || swimming ? COST_VERTICAL : COST_CLIMB) + this.getCellCost(x, y - 1, z));
+            }
+        }
+    }
+
+    /**
+     * @return true if the entity fits in the column starting at the given cell
+     */
+    public boolean fits(int x, int y, int z) {
+        for (int i = 0; i < this.height; i++) {
+            if (!this.isPassable(x, y + i, z)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isPassable(int x, int y, int z) {
+        return this.world.isPassable(x, y, z, this.options);
+    }
+
+    /**
+     * @return true if the entity can remain at the given cell without falling
+     */
+    public boolean isSupported(int x, int y, int z) {
+        if (PathCellType.isFloor(this.world.getCellType(x, y - 1, z))) {
+            return true;
+        }
+        int type = this.world.getCellType(x, y, z);
+        if (type == PathCellType.LOW) {
+            return true;
+        }
+        if (type == PathCellType.LIQUID) {
+            return this.options.canSwim();
+        }
+        if (type == PathCellType.LADDER) {
+            return this.options.canClimbLadders();
+        }
+        return this.options.canClimbWalls() && this.isNextToWall(x, y, z);
+    }
+
+    private boolean isNextToWall(int x, int y, int z) {
+        for (int i = 0; i < 4; i++) {
+            int type = this.world.getCellType(x + DX[i], y, z + DZ[i]);
+            if (type == PathCellType.SOLID || type == PathCellType.TALL) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private float getCellCost(int x, int y, int z) {
+        switch (this.world.getCellType(x, y, z)) {
+            case PathCellType.LIQUID:
+                return COST_LIQUID;
+            case PathCellType.DOOR:
+                return COST_DOOR;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Admissible and consistent estimate of the cost between two cells
+     */
+    public static float heuristic(int x1, int y1, int z1, int x2, int y2, int z2) {
+        int dx = Math.abs(x1 - x2);
+        int dz = Math.abs(z1 - z2);
+        int min = Math.min(dx, dz);
+        int max = Math.max(dx, dz);
+        return max + (COST_DIAGONAL - 1) * min + HEURISTIC_VERTICAL * Math.abs(y1 - y2);
+    }
+
+    /**
+     * Checks if a move between two cells exists by generating the neighbours of the first cell
+     */
+    private final class ReverseMove implements INeighbourConsumer {
+        private int x;
+        private int y;
+        private int z;
+        private float cost;
+
+        private float find(int fromX, int fromY, int fromZ, int toX, int toY, int toZ) {
+            this.x = toX;
+            this.y = toY;
+            this.z = toZ;
+            this.cost = -1;
+            PathMovement.this.forEachNeighbour(fromX, fromY, fromZ, this);
+            return this.cost;
+        }
+
+        @Override
+        public void accept(int x, int y, int z, float cost) {
+            if (x == this.x && y == this.y && z == this.z && (this.cost < 0 || cost < this.cost)) {
+                this.cost = cost;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface INeighbourConsumer {
+        void accept(int x, int y, int z, float cost);
+    }
+}
@@ -0,0 +1,259 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Primitive storage for the nodes of a path search, nodes are referred to by their int index.
+ * Holds the node data as parallel arrays, an open-addressing long-packed position to node map,
+ * and a binary min-heap on the f-score which serves as the open set.
+ *
+ * Pools are reused between searches to avoid reallocating their arrays: searches which run to completion on a single
+ * thread use the pool of that thread, searches which are resumed on other threads acquire a pool and release it when done.
+ */
+public class PathNodePool {
+    private static final ThreadLocal<PathNodePool> POOLS = ThreadLocal.withInitial(PathNodePool::new);
+
+    /** Maximum number of released pools which are kept for reuse */
+    private static final int MAX_SPARE_POOLS = 16;
+    private static final Queue<PathNodePool> SPARE_POOLS = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger SPARE_COUNT = new AtomicInteger();
+
+    /**
+     * @return the pool for the current thread, reset before being returned
+     */
+    public static PathNodePool get() {
+        PathNodePool pool = POOLS.get();
+        pool.reset();
+        return pool;
+    }
+
+    /**
+     * Acquires a pool which is not bound to a thread, it must be handed back with release() once it is no longer used
+     * @return a reset pool
+     */
+    public static PathNodePool acquire() {
+        PathNodePool pool = SPARE_POOLS.poll();
+        if (pool == null) {
+            return new PathNodePool();
+        }
+        SPARE_COUNT.decrementAndGet();
+        return pool;
+    }
+
+    /**
+     * Hands back a pool obtained from acquire(), the pool may not be used afterwards
+     * @param pool the pool
+     */
+    public static void release(PathNodePool pool) {
+        if (SPARE_COUNT.incrementAndGet() > MAX_SPARE_POOLS) {
+            SPARE_COUNT.decrementAndGet();
+            return;
+        }
+        pool.reset();
+        SPARE_POOLS.offer(pool);
+    }
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    /** Heap index of nodes which are not in the open set */
+    private static final int NOT_OPEN = -1;
+
+    private final Long2IntOpenHashMap index;
+
+    private long[] pos;
+    private float[] g;
+    private float[] f;
+    private float[] h;
+    private int[] parent;
+    private int[] heapIndex;
+    private boolean[] closed;
+    private int size;
+
+    private int[] heap;
+    private int heapSize;
+
+    public PathNodePool() {
+        this.index = new Long2IntOpenHashMap(INITIAL_CAPACITY);
+        this.index.defaultReturnValue(-1);
+        this.pos = new long[INITIAL_CAPACITY];
+        this.g = new float[INITIAL_CAPACITY];
+        this.f = new float[INITIAL_CAPACITY];
+        this.h = new float[INITIAL_CAPACITY];
+        this.parent = new int[INITIAL_CAPACITY];
+        this.heapIndex = new int[INITIAL_CAPACITY];
+        this.closed = new boolean[INITIAL_CAPACITY];
+        this.heap = new int[INITIAL_CAPACITY];
+    }
+
+    public void reset() {
+        // clear() keeps the backing arrays of the map, trim() prevents one huge search from pinning memory forever
+        this.index.clear();
+        this.index.trim(INITIAL_CAPACITY * 64);
+        this.size = 0;
+        this.heapSize = 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @param pos the long-packed position
+     * @return the index of the node at that position, or -1 if there is none
+     */
+    public int find(long pos) {
+        return this.index.get(pos);
+    }
+
+    /**
+     * Creates a new node, the node is not added to the open set
+     * @return the index of the new node
+     */
+    public int create(long pos, float g, float h, int parent) {
+        if (this.size >= this.pos.length) {
+            this.grow();
+        }
+        int node = this.size++;
+        this.pos[node] = pos;
+        this.g[node] = g;
+        this.h[node] = h;
+        this.f[node] = g + h;
+        this.parent[node] = parent;
+        this.heapIndex[node] = NOT_OPEN;
+        this.closed[node] = false;
+        this.index.put(pos, node);
+        return node;
+    }
+
+    public long pos(int node) {
+        return this.pos[node];
+    }
+
+    public float g(int node) {
+        return this.g[node];
+    }
+
+    public float h(int node) {
+        return this.h[node];
+    }
+
+    public float f(int node) {
+        return this.f[node];
+    }
+
+    public int parent(int node) {
+        return this.parent[node];
+    }
+
+    public boolean isClosed(int node) {
+        return this.closed[node];
+    }
+
+    public boolean isOpen(int node) {
+        return this.heapIndex[node] != NOT_OPEN;
+    }
+
+    /**
+     * Updates the cost of reaching a node, reorders the open set if the node is in it
+     */
+    public void update(int node, float g, int parent) {
+        this.g[node] = g;
+        this.f[node] = g + this.h[node];
+        this.parent[node] = parent;
+        if (this.isOpen(node)) {
+            this.siftUp(this.heapIndex[node]);
+        }
+    }
+
+    /**
+     * Adds a node to the open set
+     */
+    public void open(int node) {
+        this.closed[node] = false;
+        if (this.isOpen(node)) {
+            return;
+        }
+        if (this.heapSize >= this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, this.heap.length * 2);
+        }
+        this.heap[this.heapSize] = node;
+        this.heapIndex[node] = this.heapSize;
+        this.heapSize++;
+        this.siftUp(this.heapSize - 1);
+    }
+
+    public boolean hasOpen() {
+        return this.heapSize > 0;
+    }
+
+    /**
+     * Removes the node with the lowest f-score from the open set and marks it as closed
+     * @return the index of the node
+     */
+    public int pollOpen() {
+        int node = this.heap[0];
+        this.heapSize--;
+        if (this.heapSize > 0) {
+            this.heap[0] = this.heap[this.heapSize];
+            this.heapIndex[this.heap[0]] = 0;
+            this.siftDown(0);
+        }
+        this.heapIndex[node] = NOT_OPEN;
+        this.closed[node] = true;
+        return node;
+    }
+
+    private void siftUp(int i) {
+        int node = this.heap[i];
+        float key = this.f[node];
+        while (i > 0) {
+            int p = (i - 1) >>> 1;
+            int parentNode = this.heap[p];
+            if (this.f[parentNode] <= key) {
+                break;
+            }
+            this.heap[i] = parentNode;
+            this.heapIndex[parentNode] = i;
+            i = p;
+        }
+        this.heap[i] = node;
+        this.heapIndex[node] = i;
+    }
+
+    private void siftDown(int i) {
+        int node = this.heap[i];
+        float key = this.f[node];
+        int half = this.heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < this.heapSize && this.f[this.heap[right]] < this.f[this.heap[child]]) {
+                child = right;
+            }
+            if (key <= this.f[this.heap[child]]) {
+                break;
+            }
+            this.heap[i] = this.heap[child];
+            this.heapIndex[this.heap[i]] = i;
+            i = child;
+        }
+        this.heap[i] = node;
+        this.heapIndex[node] = i;
+    }
+
+    private void grow() {
+        int capacity = this.pos.length * 2;
+        this.pos = Arrays.copyOf(this.pos, capacity);
+        this.g = Arrays.copyOf(this.g, capacity);
+        this.f = Arrays.copyOf(this.f, capacity);
+        this.h = Arrays.copyOf(this.h, capacity);
+        this.parent = Arrays.copyOf(this.parent, capacity);
+        this.heapIndex = Arrays.copyOf(this.heapIndex, capacity);
+        this.closed = Arrays.copyOf(this.closed, capacity);
+    }
+}
@@ -0,0 +1,148 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import com.google.common.collect.Lists;
+import net.minecraft.entity.MobEntity;
+import net.minecraft.pathfinding.Path;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.vector.Vector3d;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.event.server.FMLServerStoppedEvent;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Follows entities walking a path which is not final yet:
+ *  - Partially refined hierarchical paths: once an entity approaches the end of the refined part,
+ *    a job refining the next segments of its plan is queued.
+ *  - Paths to moving targets: once the target has moved, or a section the search has read has changed,
+ *    the job is queued again to replan its path incrementally.
+ * Plans are dropped as soon as the entity is given a different path.
+ */
+public class PathPlanHandler {
+    private static final PathPlanHandler INSTANCE = new PathPlanHandler();
+
+    public static PathPlanHandler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Number of path points before the end of the refined part at which the next segments are requested,
+     * paths are smoothed so consecutive points can be up to PathSmoother.MAX_SEGMENT_LENGTH blocks apart
+     */
+    private static final int REFINE_MARGIN = 2;
+    /** Interval in ticks at which paths to moving targets are checked for changed sections */
+    private static final int CHANGE_CHECK_INTERVAL = 20;
+
+    private final List<Plan> plans;
+    private final List<Replan> replans;
+    private int tick;
+
+    private PathPlanHandler() {
+        this.plans = Lists.newArrayList();
+        this.replans = Lists.newArrayList();
+    }
+
+    /**
+     * Starts following an entity, must be called from the server thread after the path has been set
+     * @param job the job which calculated the refined part
+     * @param path the refined part of the path
+     * @param waypoints the remaining abstract waypoints
+     */
+    void track(PathFindJob job, Path path, List<BlockPos> waypoints) {
+        this.plans.add(new Plan(job, path, waypoints));
+    }
+
+    /**
+     * Starts following an entity walking to a moving target, must be called from the server thread after the path has been set
+     * @param job the job which calculated the path, holding the incremental search state
+     * @param path the path
+     * @param target the target position the path was calculated for
+     */
+    void trackMovingTarget(PathFindJob job, Path path, Vector3d target) {
+        this.replans.add(new Replan(job, path, target));
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if(event.phase != TickEvent.Phase.END) {
+            return;
+        }
+        this.tick++;
+        this.updatePlans();
+        this.updateReplans();
+    }
+
+    private void updateReplans() {
+        boolean checkChanges = this.tick % CHANGE_CHECK_INTERVAL == 0;
+        Iterator<Replan> iterator = this.replans.iterator();
+        while(iterator.hasNext()) {
+            Replan replan = iterator.next();
+            PathFindJob job = replan.job;
+            MobEntity entity = job.entity();
+            if(job.isStopped() || !entity.isAlive() || !job.target().isValid() || entity.getNavigator().getPath() != replan.path) {
+                iterator.remove();
+                job.setIncrementalSearch(null, null, null);
+                PathFlowFieldService.getInstance().unsubscribe(job);
+            } else if(job.hasTargetChanged(replan.target) || (checkChanges && this.hasWorldChanged(job))) {
+                iterator.remove();
+                if(job.restart()) {
+                    PathCalculator.getInstance().calculatePath(job);
+                }
+            }
+        }
+    }
+
+    private boolean hasWorldChanged(PathFindJob job) {
+        PathWorldCached view = job.getIncrementalView();
+        return view != null && !view.getChangedSections().isEmpty();
+    }
+
+    private void updatePlans() {
+        Iterator<Plan> iterator = this.plans.iterator();
+        while(iterator.hasNext()) {
+            Plan plan = iterator.next();
+            MobEntity entity = plan.job.entity();
+            if(!entity.isAlive() || !plan.job.target().isValid() || entity.getNavigator().getPath() != plan.path) {
+                iterator.remove();
+            } else if(plan.path.isFinished() || plan.path.getCurrentPathIndex() >= plan.path.getCurrentPathLength() - REFINE_MARGIN) {
+                iterator.remove();
+                PathCalculator.getInstance().calculatePath(plan.job.continueWith(plan.waypoints));
+            }
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onServerStopped(FMLServerStoppedEvent event) {
+        this.plans.clear();
+        this.replans.clear();
+        this.tick = 0;
+    }
+
+    private static final class Plan {
+        private final PathFindJob job;
+        private final Path path;
+        private final List<BlockPos> waypoints;
+
+        private Plan(PathFindJob job, Path path, List<BlockPos> waypoints) {
+            this.job = job;
+            this.path = path;
+            this.waypoints = waypoints;
+        }
+    }
+
+    private static final class Replan {
+        private final PathFindJob job;
+        private final Path path;
+        private final Vector3d target;
+
+        private Replan(PathFindJob job, Path path, Vector3d target) {
+            this.job = job;
+            this.path = path;
+            this.target = target;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.pathfinding.Path;
+import net.minecraft.pathfinding.PathPoint;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.SectionPos;
+import net.minecraft.world.IWorld;
+
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of calculated paths, keyed by world, start cell, target cell, options profile and entity height.
+ * Every entry remembers the chunk sections its path crosses and is evicted as soon as one of them is invalidated
+ * by the PathSectionCache. The cache is bounded, the least recently used entries are evicted first.
+ */
+public class PathResultCache implements PathSectionCache.IInvalidationListener {
+    private static final PathResultCache INSTANCE = new PathResultCache(512);
+
+    public static PathResultCache getInstance() {
+        return INSTANCE;
+    }
+
+    private final int maxSize;
+    private final LinkedHashMap<Key, Entry> entries;
+    private final Map<IWorld, Long2ObjectMap<Set<Key>>> bySection;
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    private PathResultCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if(this.size() > PathResultCache.this.maxSize) {
+                    PathResultCache.this.unindex(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.bySection = new IdentityHashMap<>();
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        PathSectionCache.getInstance().addListener(this);
+    }
+
+    /**
+     * Looks up a cached path, every call counts towards the hit or miss count
+     * @return a new Path object for the cached path, or empty if there is none
+     */
+    public Optional<Path> get(IWorld world, BlockPos start, BlockPos target, PathCalculator.IPathOptions options, int height) {
+        Entry entry;
+        synchronized (this) {
+            entry = this.entries.get(new Key(world, start, target, options, height));
+        }
+        if(entry == null) {
+            this.misses.incrementAndGet();
+            return Optional.empty();
+        }
+        this.hits.incrementAndGet();
+        return Optional.of(entry.createPath());
+    }
+
+    /**
+     * Caches a path
+     * @param cells the cells of the path, start first
+     * @param view the view the path was searched in, the path is discarded if a section read through it has been invalidated since
+     */
+    public synchronized void put(IWorld world, BlockPos start, BlockPos target, PathCalculator.IPathOptions options, int height,
+                                 List<BlockPos> cells, PathWorldCached view) {
+        // Sections invalidated after this check are handled by onSectionInvalidated(), which waits for this lock
+        if(cells.isEmpty() || !view.getChangedSections().isEmpty()) {
+            return;
+        }
+        Key key = new Key(world, start, target, options, height);
+        Entry entry = new Entry(cells, target, height);
+        Entry previous = this.entries.put(key, entry);
+        if(previous != null) {
+            this.unindex(key, previous);
+        }
+        Long2ObjectMap<Set<Key>> index = this.bySection.computeIfAbsent(world, w -> new Long2ObjectOpenHashMap<>());
+        LongIterator sections = entry.sections.iterator();
+        while(sections.hasNext()) {
+            long section = sections.nextLong();
+            Set<Key> keys = index.get(section);
+            if(keys == null) {
+                keys = new HashSet<>();
+                index.put(section, keys);
+            }
+            keys.add(key);
+        }
+    }
+
+    /**
+     * Removes all cached paths
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.bySection.clear();
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    public long getHitCount() {
+        return this.hits.get();
+    }
+
+    public long getMissCount() {
+        return this.misses.get();
+    }
+
+    /**
+     * @return the fraction of lookups which were hits, 0 if there have not been any lookups
+     */
+    public double getHitRate() {
+        long hits = this.getHitCount();
+        long total = hits + this.getMissCount();
+        return total == 0 ? 0 : ((double) hits) / total;
+    }
+
+    @Override
+    public synchronized void onSectionInvalidated(IWorld world, long sectionKey) {
+        Long2ObjectMap<Set<Key>> index = this.bySection.get(world);
+        if(index == null) {
+            return;
+        }
+        Set<Key> keys = index.remove(sectionKey);
+        if(keys != null) {
+            for(Key key : keys) {
+                Entry entry = this.entries.remove(key);
+                if(entry != null) {
+                    this.unindex(key, entry);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onWorldInvalidated(IWorld world) {
+        this.bySection.remove(world);
+        this.entries.keySet().removeIf(key -> key.world == world);
+    }
+
+    private void unindex(Key key, Entry entry) {
+        Long2ObjectMap<Set<Key>> index = this.bySection.get(key.world);
+        if(index == null) {
+            return;
+        }
+        LongIterator sections = entry.sections.iterator();
+        while(sections.hasNext()) {
+            long section = sections.nextLong();
+            Set<Key> keys = index.get(section);
+            if(keys != null) {
+                keys.remove(key);
+                if(keys.isEmpty()) {
+                    index.remove(section);
+                }
+            }
+        }
+    }
+
+    private static final class Key {
+        private final IWorld world;
+        private final long start;
+        private final long target;
+        private final int profile;
+        private final int height;
+
+        private Key(IWorld world, BlockPos start, BlockPos target, PathCalculator.IPathOptions options, int height) {
+            this.world = world;
+            this.start = start.toLong();
+            this.target = target.toLong();
+            this.profile = options.getProfile();
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(this == obj) {
+                return true;
+            }
+            if(!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return this.world == other.world && this.start == other.start && this.target == other.target
+                    && this.profile == other.profile && this.height == other.height;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(this.world);
+            hash = 31 * hash + Long.hashCode(this.start);
+            hash = 31 * hash + Long.hashCode(this.target);
+            hash = 31 * hash + this.profile;
+            return 31 * hash + this.height;
+        }
+    }
+
+    private static final class Entry {
+        private final List<BlockPos> cells;
+        private final BlockPos target;
+        private final LongSet sections;
+
+        private Entry(List<BlockPos> cells, BlockPos target, int height) {
+            this.cells = ImmutableList.copyOf(cells);
+            this.target = target.toImmutable();
+            this.sections = new LongOpenHashSet();
+            for(BlockPos cell : this.cells) {
+                // The floor below and the head room above the cell are part of the path as well
+                for(int y = cell.getY() - 1; y <= cell.getY() + height; y++) {
+                    this.sections.add(SectionPos.asLong(cell.getX() >> 4, y >> 4, cell.getZ() >> 4));
+                }
+            }
+        }
+
+        /**
+         * Paths are advanced by the entities following them, therefore each hit gets its own Path object
+         */
+        private Path createPath() {
+            List<PathPoint> points = Lists.newArrayListWithCapacity(this.cells.size());
+            for(BlockPos cell : this.cells) {
+                points.add(new PathPoint(cell.getX(), cell.getY(), cell.getZ()));
+            }
+            return new Path(points, this.target, true);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import com.google.common.collect.Lists;
+import net.minecraft.pathfinding.Path;
+import net.minecraft.pathfinding.PathPoint;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A* search between two cells.
+ * The search state is kept in this object, so the search can be advanced in steps with a limited number of node expansions.
+ */
+public class PathSearch implements PathMovement.INeighbourConsumer {
+    /** Default maximum number of nodes to expand before a search is considered failed */
+    public static final int DEFAULT_MAX_NODES = 10000;
+
+    public enum Status {
+        SEARCHING,
+        FOUND,
+        FAILED
+    }
+
+    private final PathMovement movement;
+    private final PathNodePool pool;
+    private final BlockPos start;
+    private final BlockPos goal;
+    private final boolean goalBlocked;
+    private final int maxNodes;
+
+    private Status status;
+    private int current;
+    private int best;
+    private int result;
+    private int expanded;
+    private boolean budgetExceeded;
+
+    public PathSearch(PathMovement movement, PathNodePool pool, BlockPos start, BlockPos goal, int maxNodes) {
+        this.movement = movement;
+        this.pool = pool;
+        this.start = this.adjustStart(start);
+        this.goal = goal;
+        // If the goal itself can not be occupied (e.g. a solid block was targeted), the cells around it are accepted as well
+        this.goalBlocked = !movement.fits(goal.getX(), goal.getY(), goal.getZ());
+        this.maxNodes = maxNodes;
+        this.status = Status.SEARCHING;
+        this.result = -1;
+        int node = pool.create(this.start.toLong(), 0, this.heuristic(this.start.getX(), this.start.getY(), this.start.getZ()), -1);
+        pool.open(node);
+        this.best = node;
+    }
+
+    private BlockPos adjustStart(BlockPos start) {
+        // Entities standing on blocks lower than a full block (farmland, soul sand, ...) have their feet inside the block
+        if (!this.movement.fits(start.getX(), start.getY(), start.getZ()) && this.movement.fits(start.getX(), start.getY() + 1, start.getZ())) {
+            return start.up();
+        }
+        return start;
+    }
+
+    public Status getStatus() {
+        return this.status;
+    }
+
+    public BlockPos getStart() {
+        return this.start;
+    }
+
+    public BlockPos getGoal() {
+        return this.goal;
+    }
+
+    /**
+     * @return the number of nodes expanded so far
+     */
+    public int getExpandedCount() {
+        return this.expanded;
+    }
+
+    public PathMovement getMovement() {
+        return this.movement;
+    }
+
+    /**
+     * @return the pool holding the nodes of this search
+     */
+    public PathNodePool getNodePool() {
+        return this.pool;
+    }
+
+    /**
+     * @return true if the search failed because the maximum number of nodes was expanded, rather than because the goal is unreachable
+     */
+    public boolean hasExceededBudget() {
+        return this.budgetExceeded;
+    }
+
+    /**
+     * Runs the search until it finishes
+     * @return the final status
+     */
+    public Status run() {
+        return this.step(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Advances the search
+     * @param budget the maximum number of nodes to expand in this step
+     * @return the status after this step
+     */
+    public Status step(int budget) {
+        while (this.status == Status.SEARCHING && budget-- > 0) {
+            if (!this.pool.hasOpen()) {
+                this.status = Status.FAILED;
+                break;
+            }
+            this.current = this.pool.pollOpen();
+            this.expanded++;
+            long pos = this.pool.pos(this.current);
+            int x = BlockPos.unpackX(pos);
+            int y = BlockPos.unpackY(pos);
+            int z = BlockPos.unpackZ(pos);
+            if (this.isGoal(x, y, z)) {
+                this.result = this.current;
+                this.status = Status.FOUND;
+                break;
+            }
+            if (this.pool.h(this.current) < this.pool.h(this.best)) {
+                this.best = this.current;
+            }
+            if (this.expanded >= this.maxNodes) {
+                this.status = Status.FAILED;
+                this.budgetExceeded = true;
+                break;
+            }
+            this.movement.forEachNeighbour(x, y, z, this);
+        }
+        return this.status;
+    }
+
+    @Override
+    public void accept(int x, int y, int z, float cost) {
+        long pos = BlockPos.pack(x, y, z);
+        float g = this.pool.g(this.current) + cost;
+        int node = this.pool.find(pos);
+        if (node < 0) {
+            node = this.pool.create(pos, g, this.heuristic(x, y, z), this.current);
+            this.pool.open(node);
+        } else if (!this.pool.isClosed(node) && g < this.pool.g(node)) {
+            // The heuristic is consistent, so closed nodes never have to be reopened
+            this.pool.update(node, g, this.current);
+        }
+    }
+
+    private boolean isGoal(int x, int y, int z) {
+        if (x == this.goal.getX() && y == this.goal.getY() && z == this.goal.getZ()) {
+            return true;
+        }
+        return this.goalBlocked
+                && Math.abs(x - this.goal.getX()) <= 1
+                && Math.abs(y - this.goal.getY()) <= 1
+                && Math.abs(z - this.goal.getZ()) <= 1;
+    }
+
+    private float heuristic(int x, int y, int z) {
+        return PathMovement.heuristic(x, y, z, this.goal.getX(), this.goal.getY(), this.goal.getZ());
+    }
+
+    /**
+     * @return the path to the goal, or empty if the search has not (yet) found the goal
+     */
+    public Optional<Path> getPath() {
+        return this.status == Status.FOUND ? Optional.of(this.buildPath(this.result, true)) : Optional.empty();
+    }
+
+    /**
+     * @return the path to the explored node closest to the goal, or empty if no node besides the start has been explored
+     */
+    public Optional<Path> getBestEffortPath() {
+        return this.pool.parent(this.best) < 0 ? Optional.empty() : Optional.of(this.buildPath(this.best, false));
+    }
+
+    /**
+     * @return the cells on the path to the goal, start first, or an empty list if the goal has not (yet) been found
+     */
+    public List<BlockPos> getCells() {
+        return this.status == Status.FOUND ? this.collectCells(this.result) : Collections.emptyList();
+    }
+
+    protected List<BlockPos> collectCells(int node) {
+        List<BlockPos> cells = Lists.newArrayList();
+        while (node >= 0) {
+            cells.add(BlockPos.fromLong(this.pool.pos(node)));
+            node = this.pool.parent(node);
+        }
+        Collections.reverse(cells);
+        return cells;
+    }
+
+    protected Path buildPath(int node, boolean reachesTarget) {
+        List<PathPoint> points = Lists.newArrayList();
+        for (BlockPos cell : this.collectCells(node)) {
+            points.add(new PathPoint(cell.getX(), cell.getY(), cell.getZ()));
+        }
+        return new Path(points, this.goal, reachesTarget);
+    }
+}
@@ -0,0 +1,198 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.shorts.ShortArrayList;
+import it.unimi.dsi.fastutil.shorts.ShortList;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable snapshot of the PathCellTypes of a 16x16x16 chunk section.
+ * Cell types are packed with PathCellType.BITS bits per block in a long[], sections consisting of a single type
+ * (e.g. all air or all stone) do not store an array at all.
+ *
+ * Passability depends on the IPathOptions of the entity, therefore one bit per block passability masks are derived
+ * lazily for every passability profile (see getPassabilityProfile()). Snapshots are built on the main thread
+ * and are safe to read from any thread afterwards.
+ *
+ * Cells holding a block of which the type depends on its state (see PathCellType.isStateSensitive()) are watched:
+ * their states are kept so the snapshot can be checked against the world with isStale().
+ */
+public final class PathSection {
+    private static final int CELLS_PER_LONG = 64 / PathCellType.BITS;
+    private static final int TYPE_MASK = (1 << PathCellType.BITS) - 1;
+    private static final int CELLS = 16 * 16 * 16;
+
+    /** Profile bits which influence passability, see PathCellType.isPassable() */
+    private static final int PROFILE_DOORS = 1;
+    private static final int PROFILE_SWIM = 2;
+    private static final int PROFILE_COUNT = 4;
+
+    private static final short[] NO_WATCHED = new short[0];
+    private static final BlockState[] NO_STATES = new BlockState[0];
+
+    private final long[] types;
+    private final int uniformType;
+    private final AtomicReferenceArray<long[]> passable;
+    private final short[] watched;
+    private final BlockState[] watchedStates;
+
+    private PathSection(long[] types, int uniformType, short[] watched, BlockState[] watchedStates) {
+        this.types = types;
+        this.uniformType = uniformType;
+        this.passable = new AtomicReferenceArray<>(PROFILE_COUNT);
+        this.watched = watched;
+        this.watchedStates = watchedStates;
+    }
+
+    /**
+     * @param x the x-coordinate within the section (0-15)
+     * @param y the y-coordinate within the section (0-15)
+     * @param z the z-coordinate within the section (0-15)
+     * @return the PathCellType at the given position
+     */
+    public int getCellType(int x, int y, int z) {
+        if(this.types == null) {
+            return this.uniformType;
+        }
+        int index = index(x, y, z);
+        return (int) (this.types[index / CELLS_PER_LONG] >>> ((index % CELLS_PER_LONG) * PathCellType.BITS)) & TYPE_MASK;
+    }
+
+    /**
+     * @param x the x-coordinate within the section (0-15)
+     * @param y the y-coordinate within the section (0-15)
+     * @param z the z-coordinate within the section (0-15)
+     * @param profile the passability profile
+     * @return true if an entity with the given profile can occupy the given cell
+     */
+    public boolean isPassable(int x, int y, int z, int profile) {
+        if(this.types == null) {
+            return PathCellType.isPassable(this.uniformType, (profile & PROFILE_DOORS) != 0, (profile & PROFILE_SWIM) != 0);
+        }
+        long[] mask = this.passable.get(profile);
+        if(mask == null) {
+            // Racing threads compute identical masks, so there is no need to lock
+            mask = this.computePassable(profile);
+            this.passable.set(profile, mask);
+        }
+        int index = index(x, y, z);
+        return (mask[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * @return true if every block in the section has the same type
+     */
+    public boolean isUniform() {
+        return this.types == null;
+    }
+
+    /**
+     * @return true if the section has cells of which the type may change without a block change event
+     */
+    public boolean hasWatchedCells() {
+        return this.watched.length > 0;
+    }
+
+    /**
+     * Checks the watched cells against the world, must be called from the thread owning the chunk
+     * @param section the chunk section this snapshot was built from
+     * @return true if the state of a watched cell has changed since the snapshot was built
+     */
+    public boolean isStale(ChunkSection section) {
+        if(ChunkSection.isEmpty(section)) {
+            return this.hasWatchedCells();
+        }
+        for(int i = 0; i < this.watched.length; i++) {
+            int index = this.watched[i];
+            if(section.getBlockState(index & 15, index >> 8, (index >> 4) & 15) != this.watchedStates[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long[] computePassable(int profile) {
+        boolean doors = (profile & PROFILE_DOORS) != 0;
+        boolean swim = (profile & PROFILE_SWIM) != 0;
+        long[] mask = new long[CELLS / 64];
+        for(int index = 0; index < CELLS; index++) {
+            int type = (int) (this.types[index / CELLS_PER_LONG] >>> ((index % CELLS_PER_LONG) * PathCellType.BITS)) & TYPE_MASK;
+            if(PathCellType.isPassable(type, doors, swim)) {
+                mask[index >>> 6] |= 1L << index;
+            }
+        }
+        return mask;
+    }
+
+    private static int index(int x, int y, int z) {
+        return (y << 8) | (z << 4) | x;
+    }
+
+    /**
+     * @param options path finding options
+     * @return the passability profile of the options, options with the same profile share passability masks
+     */
+    public static int getPassabilityProfile(PathCalculator.IPathOptions options) {
+        return (options.canOpenDoors() ? PROFILE_DOORS : 0) | (options.canSwim() ? PROFILE_SWIM : 0);
+    }
+
+    /**
+     * Builds the snapshot of a section, must be called from the thread owning the chunk.
+     * Blocks are classified once per distinct block state in the section, as the section palette would.
+     *
+     * @param chunk the chunk
+     * @param sectionY the index of the section within the chunk
+     * @return the snapshot
+     */
+    public static PathSection build(Chunk chunk, int sectionY) {
+        ChunkSection[] sections = chunk.getSections();
+        ChunkSection section = sectionY >= 0 && sectionY < sections.length ? sections[sectionY] : null;
+        if(ChunkSection.isEmpty(section)) {
+            return new PathSection(null, PathCellType.OPEN, NO_WATCHED, NO_STATES);
+        }
+        Reference2IntMap<BlockState> palette = new Reference2IntOpenHashMap<>();
+        palette.defaultReturnValue(-1);
+        BlockPos.Mutable pos = new BlockPos.Mutable();
+        int baseX = chunk.getPos().getXStart();
+        int baseY = sectionY << 4;
+        int baseZ = chunk.getPos().getZStart();
+        long[] types = new long[CELLS / CELLS_PER_LONG];
+        ShortList watched = new ShortArrayList();
+        List<BlockState> watchedStates = new ArrayList<>();
+        int first = -1;
+        boolean uniform = true;
+        for(int index = 0; index < CELLS; index++) {
+            int x = index & 15;
+            int z = (index >> 4) & 15;
+            int y = index >> 8;
+            BlockState state = section.getBlockState(x, y, z);
+            int type = palette.getInt(state);
+            if(type < 0) {
+                pos.setPos(baseX + x, baseY + y, baseZ + z);
+                type = PathCellType.classify(chunk, pos, state);
+                palette.put(state, type);
+            }
+            if(PathCellType.isStateSensitive(state.getBlock())) {
+                watched.add((short) index);
+                watchedStates.add(state);
+            }
+            if(first < 0) {
+                first = type;
+            } else if(type != first) {
+                uniform = false;
+            }
+            types[index / CELLS_PER_LONG] |= ((long) type) << ((index % CELLS_PER_LONG) * PathCellType.BITS);
+        }
+        short[] watchedCells = watched.isEmpty() ? NO_WATCHED : watched.toShortArray();
+        BlockState[] states = watchedStates.isEmpty() ? NO_STATES : watchedStates.toArray(new BlockState[0]);
+        return uniform ? new PathSection(null, first, watchedCells, states) : new PathSection(types, -1, watchedCells, states);
+    }
+}
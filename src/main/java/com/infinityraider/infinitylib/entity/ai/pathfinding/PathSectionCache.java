@@ -0,0 +1,350 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import net.minecraft.util.concurrent.ThreadTaskExecutor;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.SectionPos;
+import net.minecraft.world.IWorld;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.world.BlockEvent;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+import net.minecraftforge.fml.LogicalSide;
+import net.minecraftforge.fml.LogicalSidedProvider;
+
+import javax.annotation.Nullable;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Cache of PathSection snapshots for every world.
+ * Snapshots are only ever built on the thread owning the world: path calculation threads which request a missing
+ * section hand the build to the main thread without waiting for it, until it is built the section is unknown and reads
+ * as solid. Listeners are notified once such a section is built, as data derived from it is outdated.
+ * Jobs prepare the sections between their start and target when they are queued, so unknown sections should be the exception.
+ * Snapshots are invalidated when a block in their section changes, or when their chunk is unloaded.
+ * Block changes which do not notify neighbours (e.g. doors opened by villagers) do not fire an event, therefore the
+ * watched cells of the snapshots (see PathSection) are checked against the world every few ticks as well.
+ */
+public class PathSectionCache {
+    private static final PathSectionCache INSTANCE = new PathSectionCache();
+
+    public static PathSectionCache getInstance() {
+        return INSTANCE;
+    }
+
+    /** Maximum number of sections built when preparing a job */
+    private static final int MAX_PREPARED_SECTIONS = 64;
+    /** Number of ticks between checks of the watched cells */
+    private static final int WATCH_INTERVAL = 4;
+
+    private final Map<World, WorldCache> worlds;
+    private final List<IInvalidationListener> listeners;
+
+    private PathSectionCache() {
+        this.worlds = Collections.synchronizedMap(new WeakHashMap<>());
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Registers a listener which is notified whenever sections are invalidated
+     * @param listener the listener
+     */
+    public void addListener(IInvalidationListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Fetches the cache for a world, creating it if needed
+     * @param world the world
+     * @return the cache
+     */
+    public WorldCache getCache(World world) {
+        synchronized (this.worlds) {
+            WorldCache cache = this.worlds.get(world);
+            if(cache == null) {
+                cache = new WorldCache(world);
+                this.worlds.put(world, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Creates a view on the cached sections of a world for a single path search
+     * @param world the world
+     * @return the view
+     */
+    public PathWorldCached createView(World world) {
+        return new PathWorldCached(this.getCache(world), world.getHeight());
+    }
+
+    /**
+     * Builds the missing sections in the box spanned by two positions, expanded by one section in every direction.
+     * Does nothing if not called from the thread owning the world, if the box is too large, only the sections around both positions are built.
+     *
+     * @param world the world
+     * @param from the first position (e.g. the start of a path)
+     * @param to the second position (e.g. the target of a path)
+     */
+    public void prepare(World world, BlockPos from, BlockPos to) {
+        WorldCache cache = this.getCache(world);
+        if(!cache.executor.isOnExecutionThread()) {
+            return;
+        }
+        int minX = Math.min(from.getX(), to.getX()) >> 4;
+        int minY = Math.min(from.getY(), to.getY()) >> 4;
+        int minZ = Math.min(from.getZ(), to.getZ()) >> 4;
+        int maxX = Math.max(from.getX(), to.getX()) >> 4;
+        int maxY = Math.max(from.getY(), to.getY()) >> 4;
+        int maxZ = Math.max(from.getZ(), to.getZ()) >> 4;
+        long count = (long) (maxX - minX + 3) * (maxY - minY + 3) * (maxZ - minZ + 3);
+        if(count <= MAX_PREPARED_SECTIONS) {
+            cache.build(minX - 1, minY - 1, minZ - 1, maxX + 1, maxY + 1, maxZ + 1);
+        } else {
+            cache.build((from.getX() >> 4) - 1, (from.getY() >> 4) - 1, (from.getZ() >> 4) - 1, (from.getX() >> 4) + 1, (from.getY() >> 4) + 1, (from.getZ() >> 4) + 1);
+            cache.build((to.getX() >> 4) - 1, (to.getY() >> 4) - 1, (to.getZ() >> 4) - 1, (to.getX() >> 4) + 1, (to.getY() >> 4) + 1, (to.getZ() >> 4) + 1);
+        }
+    }
+
+    /**
+     * Invalidates the cached section containing a position
+     * @param world the world
+     * @param pos the position
+     */
+    public void invalidate(IWorld world, BlockPos pos) {
+        WorldCache cache = this.worlds.get(world);
+        if(cache != null) {
+            cache.invalidate(pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4);
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onBlockChanged(BlockEvent.NeighborNotifyEvent event) {
+        this.invalidate(event.getWorld(), event.getPos());
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onWorldTick(TickEvent.WorldTickEvent event) {
+        if(event.phase != TickEvent.Phase.END || event.world.getGameTime() % WATCH_INTERVAL != 0) {
+            return;
+        }
+        WorldCache cache = this.worlds.get(event.world);
+        if(cache != null) {
+            cache.checkWatched();
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onChunkUnload(ChunkEvent.Unload event) {
+        WorldCache cache = this.worlds.get(event.getWorld());
+        if(cache != null) {
+            cache.invalidateChunk(event.getChunk().getPos().x, event.getChunk().getPos().z);
+        }
+    }
+
+    @SubscribeEvent
+    @SuppressWarnings("unused")
+    public void onWorldUnload(WorldEvent.Unload event) {
+        if(this.worlds.remove(event.getWorld()) != null) {
+            this.listeners.forEach(listener -> listener.onWorldInvalidated(event.getWorld()));
+        }
+    }
+
+    /**
+     * Listener for invalidated sections, for caches which derive data from the world
+     */
+    public interface IInvalidationListener {
+        /**
+         * Called from the thread owning the world when a section is invalidated
+         * @param world the world
+         * @param sectionKey the section, as a long as defined by SectionPos.asLong()
+         */
+        void onSectionInvalidated(IWorld world, long sectionKey);
+
+        /**
+         * Called when a world is unloaded
+         * @param world the world
+         */
+        void onWorldInvalidated(IWorld world);
+    }
+
+    /**
+     * The cached sections of a single world
+     */
+    public static final class WorldCache {
+        // The cache is the value of a weak map keyed by the world, a strong reference would keep the world alive
+        private final WeakReference<World> world;
+        private final int height;
+        private final ThreadTaskExecutor<?> executor;
+        private final Map<Long, PathSection> sections;
+        private final Set<Long> pending;
+        private final Set<Long> watched;
+
+        private WorldCache(World world) {
+            this.world = new WeakReference<>(world);
+            this.height = world.getHeight();
+            this.executor = LogicalSidedProvider.WORKQUEUE.get(world.isRemote ? LogicalSide.CLIENT : LogicalSide.SERVER);
+            this.sections = new ConcurrentHashMap<>();
+            this.pending = ConcurrentHashMap.newKeySet();
+            this.watched = ConcurrentHashMap.newKeySet();
+        }
+
+        /**
+         * @return the world, or null if it has been unloaded
+         */
+        @Nullable
+        public World getWorld() {
+            return this.world.get();
+        }
+
+        /**
+         * Fetches a section snapshot, can be called from any thread.
+         * Missing sections are built on the thread owning the world, other threads do not wait for the build:
+         * they receive null, and isBuilding() tells if the section is unknown rather than not loaded
+         *
+         * @param sectionX the section x-coordinate
+         * @param sectionY the section y-coordinate
+         * @param sectionZ the section z-coordinate
+         * @return the snapshot, or null if the section is not loaded or not yet built
+         */
+        @Nullable
+        public PathSection getSection(int sectionX, int sectionY, int sectionZ) {
+            long key = SectionPos.asLong(sectionX, sectionY, sectionZ);
+            PathSection section = this.sections.get(key);
+            PathMetrics.getInstance().onSectionLookup(section != null);
+            if(section != null) {
+                return section;
+            }
+            if(this.executor.isOnExecutionThread()) {
+                return this.build(key, sectionX, sectionY, sectionZ);
+            }
+            if(this.pending.add(key)) {
+                this.executor.execute(() -> {
+                    try {
+                        World world = this.getWorld();
+                        if(world != null && this.build(key, sectionX, sectionY, sectionZ) != null) {
+                            // Searches which read the section while it was unknown treated it as solid
+                            INSTANCE.listeners.forEach(listener -> listener.onSectionInvalidated(world, key));
+                        }
+                    } finally {
+                        this.pending.remove(key);
+                    }
+                });
+            }
+            return null;
+        }
+
+        /**
+         * Checks if a section which is not cached is being built, can be called from any thread
+         * @param sectionKey the section, as a long as defined by SectionPos.asLong()
+         * @return true if a build of the section has been requested and has not finished yet
+         */
+        public boolean isBuilding(long sectionKey) {
+            return this.pending.contains(sectionKey);
+        }
+
+        /**
+         * Fetches a section snapshot without building it, can be called from any thread
+         * @param sectionKey the section, as a long as defined by SectionPos.asLong()
+         * @return the snapshot, or null if it is not cached
+         */
+        public PathSection peekSection(long sectionKey) {
+            return this.sections.get(sectionKey);
+        }
+
+        /**
+         * Removes a section snapshot, must be called from the thread owning the world
+         */
+        public void invalidate(int sectionX, int sectionY, int sectionZ) {
+            long key = SectionPos.asLong(sectionX, sectionY, sectionZ);
+            this.sections.remove(key);
+            this.watched.remove(key);
+            World world = this.getWorld();
+            if(world != null) {
+                INSTANCE.listeners.forEach(listener -> listener.onSectionInvalidated(world, key));
+            }
+        }
+
+        /**
+         * Removes all section snapshots of a chunk, must be called from the thread owning the world
+         */
+        public void invalidateChunk(int chunkX, int chunkZ) {
+            for(int y = 0; y < this.height >> 4; y++) {
+                this.invalidate(chunkX, y, chunkZ);
+            }
+        }
+
+        /**
+         * Invalidates the snapshots of which a watched cell has changed, must be called from the thread owning the world
+         */
+        private void checkWatched() {
+            World world = this.getWorld();
+            if(world == null) {
+                return;
+            }
+            for(long key : this.watched) {
+                PathSection section = this.sections.get(key);
+                if(section == null) {
+                    this.watched.remove(key);
+                    continue;
+                }
+                int sectionX = SectionPos.extractX(key);
+                int sectionY = SectionPos.extractY(key);
+                int sectionZ = SectionPos.extractZ(key);
+                Chunk chunk = world.getChunkProvider().getChunk(sectionX, sectionZ, false);
+                if(chunk == null) {
+                    this.invalidate(sectionX, sectionY, sectionZ);
+                    continue;
+                }
+                ChunkSection[] sections = chunk.getSections();
+                if(section.isStale(sectionY >= 0 && sectionY < sections.length ? sections[sectionY] : null)) {
+                    this.invalidate(sectionX, sectionY, sectionZ);
+                }
+            }
+        }
+
+        private void build(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+            for(int x = minX; x <= maxX; x++) {
+                for(int z = minZ; z <= maxZ; z++) {
+                    for(int y = Math.max(0, minY); y <= Math.min(maxY, (this.height >> 4) - 1); y++) {
+                        long key = SectionPos.asLong(x, y, z);
+                        if(!this.sections.containsKey(key)) {
+                            this.build(key, x, y, z);
+                        }
+                    }
+                }
+            }
+        }
+
+        private PathSection build(long key, int sectionX, int sectionY, int sectionZ) {
+            PathSection section = this.sections.get(key);
+            if(section != null) {
+                return section;
+            }
+            World world = this.getWorld();
+            Chunk chunk = world == null ? null : world.getChunkProvider().getChunk(sectionX, sectionZ, false);
+            if(chunk == null) {
+                return null;
+            }
+            section = PathSection.build(chunk, sectionY);
+            this.sections.put(key, section);
+            if(section.hasWatchedCells()) {
+                this.watched.add(key);
+            }
+            return section;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import com.google.common.collect.Lists;
+import net.minecraft.pathfinding.Path;
+import net.minecraft.pathfinding.PathPoint;
+import net.minecraft.util.math.MathHelper;
+
+import java.util.List;
+
+/**
+ * Post-processes paths by string pulling: path points which can be skipped because the entity can walk in a straight
+ * line between the points around them are removed. This leaves only the corners of the path, so the navigator has far
+ * fewer points to check and to send to clients.
+ *
+ * Only points on level stretches of the path are removed, points where the entity jumps, falls, climbs or swims are kept.
+ * A point is only skipped if the box of the entity, swept along the straight line, does not overlap any blocked cell.
+ */
+public class PathSmoother {
+    /** Maximum horizontal distance between two remaining points */
+    public static final int MAX_SEGMENT_LENGTH = 16;
+
+    private final PathMovement movement;
+    private final double halfWidth;
+
+    /**
+     * @param movement the movement rules the path was calculated with
+     * @param width the width of the entity following the path
+     */
+    public PathSmoother(PathMovement movement, float width) {
+        this.movement = movement;
+        this.halfWidth = width / 2.0D;
+    }
+
+    /**
+     * Smooths a path
+     * @param path the path
+     * @return a new path with the redundant points removed, or the same path if there is nothing to remove
+     */
+    public Path smooth(Path path) {
+        int length = path.getCurrentPathLength();
+        if(length <= 2) {
+            return path;
+        }
+        List<PathPoint> points = Lists.newArrayList();
+        int anchor = 0;
+        points.add(path.getPathPointFromIndex(0));
+        while(anchor < length - 1) {
+            int next = anchor + 1;
+            PathPoint from = path.getPathPointFromIndex(anchor);
+            while(next + 1 < length && this.canSkipTo(from, path.getPathPointFromIndex(next), path.getPathPointFromIndex(next + 1))) {
+                next++;
+            }
+            points.add(path.getPathPointFromIndex(next));
+            anchor = next;
+        }
+        if(points.size() == length) {
+            return path;
+        }
+        return new Path(points, path.getTarget(), path.reachesTarget());
+    }
+
+    private boolean canSkipTo(PathPoint from, PathPoint skipped, PathPoint to) {
+        if(from.y != skipped.y || skipped.y != to.y) {
+            return false;
+        }
+        if(Math.max(Math.abs(to.x - from.x), Math.abs(to.z - from.z)) > MAX_SEGMENT_LENGTH) {
+            return false;
+        }
+        return this.isWalkable(skipped.x, skipped.y, skipped.z) && this.hasLineOfWalk(from.x, to.x, from.y, from.z, to.z)
+                && this.hasClearance(from.x, to.x, from.y, from.z, to.z);
+    }
+
+    /**
+     * Walks over all cells touched by the straight line between the centers of two cells at the same height
+     * @return true if the entity can walk along the line
+     */
+    private boolean hasLineOfWalk(int x0, int x1, int y, int z0, int z1) {
+        int dx = Math.abs(x1 - x0);
+        int dz = Math.abs(z1 - z0);
+        int stepX = Integer.signum(x1 - x0);
+        int stepZ = Integer.signum(z1 - z0);
+        int x = x0;
+        int z = z0;
+        // Distances are scaled by 2 * dx * dz to stay in integers, the line starts at the center of the first cell
+        long nextX = (long) dz;
+        long nextZ = (long) dx;
+        for(int i = dx + dz; i > 0; i--) {
+            if(nextX < nextZ) {
+                x += stepX;
+                nextX += 2L * dz;
+            } else if(nextZ < nextX) {
+                z += stepZ;
+                nextZ += 2L * dx;
+            } else {
+                // The line passes exactly through a corner, the cells on both sides of it are touched as well
+                if(!this.isWalkable(x + stepX, y, z) || !this.isWalkable(x, y, z + stepZ)) {
+                    return false;
+                }
+                x += stepX;
+                z += stepZ;
+                nextX += 2L * dz;
+                nextZ += 2L * dx;
+                i--;
+            }
+            if(!this.isWalkable(x, y, z)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks the cells overlapped by the box of the entity while it moves along the straight line between the centers of
+     * two cells at the same height, the entity must fit in these cells, but it does not have to be supported by them
+     * @return true if the entity does not touch any blocked cell along the line
+     */
+    private boolean hasClearance(int x0, int x1, int y, int z0, int z1) {
+        if(this.halfWidth <= 0) {
+            return true;
+        }
+        double ax = x0 + 0.5D;
+        double az = z0 + 0.5D;
+        double dx = x1 - x0;
+        double dz = z1 - z0;
+        // Boxes merely touching a cell do not overlap it
+        int minX = MathHelper.floor(Math.min(ax, ax + dx) - this.halfWidth);
+        int maxX = MathHelper.ceil(Math.max(ax, ax + dx) + this.halfWidth) - 1;
+        int minZ = MathHelper.floor(Math.min(az, az + dz) - this.halfWidth);
+        int maxZ = MathHelper.ceil(Math.max(az, az + dz) + this.halfWidth) - 1;
+        for(int x = minX; x <= maxX; x++) {
+            for(int z = minZ; z <= maxZ; z++) {
+                // The box overlaps the cell if the line crosses the cell grown by half the width of the entity
+                if(intersects(ax, az, dx, dz, x - this.halfWidth, z - this.halfWidth, x + 1 + this.halfWidth, z + 1 + this.halfWidth)
+                        && !this.isClear(x, y, z)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Slab test of a line segment against the interior of a rectangle
+     * @return true if the segment from (ax, az) to (ax + dx, az + dz) passes through the rectangle
+     */
+    private static boolean intersects(double ax, double az, double dx, double dz, double minX, double minZ, double maxX, double maxZ) {
+        double tMin = 0;
+        double tMax = 1;
+        if(dx == 0) {
+            if(ax <= minX || ax >= maxX) {
+                return false;
+            }
+        } else {
+            double t1 = (minX - ax) / dx;
+            double t2 = (maxX - ax) / dx;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        }
+        if(dz == 0) {
+            if(az <= minZ || az >= maxZ) {
+                return false;
+            }
+        } else {
+            double t1 = (minZ - az) / dz;
+            double t2 = (maxZ - az) / dz;
+            tMin = Math.max(tMin, Math.min(t1, t2));
+            tMax = Math.min(tMax, Math.max(t1, t2));
+        }
+        return tMin < tMax;
+    }
+
+    private boolean isClear(int x, int y, int z) {
+        return this.movement.fits(x, y, z) && this.movement.getWorld().getCellType(x, y - 1, z) != PathCellType.DANGER;
+    }
+
+    private boolean isWalkable(int x, int y, int z) {
+        int type = this.movement.getWorld().getCellType(x, y, z);
+        return (type == PathCellType.OPEN || type == PathCellType.LOW)
+                && this.movement.fits(x, y, z)
+                && (this.movement.getOptions().canFly() || this.movement.isSupported(x, y, z))
+                && this.movement.getWorld().getCellType(x, y - 1, z) != PathCellType.DANGER;
+    }
+}
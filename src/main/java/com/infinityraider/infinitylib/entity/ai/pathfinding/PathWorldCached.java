@@ -0,0 +1,97 @@
+package com.infinityraider.infinitylib.entity.ai.pathfinding;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import net.minecraft.util.math.SectionPos;
+
+/**
+ * IPathWorld implementation which reads PathSection snapshots from the PathSectionCache.
+ * Sections are fetched once and kept for the lifetime of the view, so a search sees a consistent world
+ * even if sections are invalidated in the meantime. A view is meant to be used for a single search.
+ * Sections which are still being built when they are first read are unknown for the rest of the search and read as solid,
+ * isIncomplete() tells if this happened.
+ */
+public class PathWorldCached implements IPathWorld {
+    private final PathSectionCache.WorldCache cache;
+    private final int height;
+    private final Long2ObjectMap<PathSection> sections;
+
+    private long lastKey;
+    private PathSection lastSection;
+    private boolean incomplete;
+
+    private PathCalculator.IPathOptions lastOptions;
+    private int lastProfile;
+
+    public PathWorldCached(PathSectionCache.WorldCache cache, int height) {
+        this.cache = cache;
+        this.height = height;
+        this.sections = new Long2ObjectOpenHashMap<>();
+        this.lastKey = Long.MIN_VALUE;
+    }
+
+    @Override
+    public int getCellType(int x, int y, int z) {
+        PathSection section = this.getSection(x, y, z);
+        return section == null ? PathCellType.SOLID : section.getCellType(x & 15, y & 15, z & 15);
+    }
+
+    @Override
+    public boolean isPassable(int x, int y, int z, PathCalculator.IPathOptions options) {
+        PathSection section = this.getSection(x, y, z);
+        if(section == null) {
+            return false;
+        }
+        if(options != this.lastOptions) {
+            this.lastOptions = options;
+            this.lastProfile = PathSection.getPassabilityProfile(options);
+        }
+        return section.isPassable(x & 15, y & 15, z & 15, this.lastProfile);
+    }
+
+    /**
+     * @return true if a section read through this view was still being built, so the search might have missed cells
+     */
+    public boolean isIncomplete() {
+        return this.incomplete;
+    }
+
+    /**
+     * Finds the sections read through this view which have changed in the cache since
+     * @return the keys of the changed sections, as defined by SectionPos.asLong()
+     */
+    public LongSet getChangedSections() {
+        LongSet changed = new LongOpenHashSet();
+        ObjectIterator<Long2ObjectMap.Entry<PathSection>> iterator = this.sections.long2ObjectEntrySet().iterator();
+        while(iterator.hasNext()) {
+            Long2ObjectMap.Entry<PathSection> entry = iterator.next();
+            if(this.cache.peekSection(entry.getLongKey()) != entry.getValue()) {
+                changed.add(entry.getLongKey());
+            }
+        }
+        return changed;
+    }
+
+    private PathSection getSection(int x, int y, int z) {
+        if(y < 0 || y >= this.height) {
+            return null;
+        }
+        long key = SectionPos.asLong(x >> 4, y >> 4, z >> 4);
+        if(key != this.lastKey) {
+            PathSection section = this.sections.get(key);
+            if(section == null && !this.sections.containsKey(key)) {
+                section = this.cache.getSection(x >> 4, y >> 4, z >> 4);
+                if(section == null && (this.cache.isBuilding(key) || this.cache.peekSection(key) != null)) {
+                    this.incomplete = true;
+                }
+                this.sections.put(key, section);
+            }
+            this.lastKey = key;
+            this.lastSection = section;
+        }
+        return this.lastSection;
+    }
+}
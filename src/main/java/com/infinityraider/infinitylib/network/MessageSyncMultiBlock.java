@@ -0,0 +1,78 @@
+package com.infinityraider.infinitylib.network;
+
+import com.infinityraider.infinitylib.InfinityLib;
+import com.infinityraider.infinitylib.block.multiblock.IMultiBlockComponent;
+import com.infinityraider.infinitylib.block.multiblock.MultiBlockManager;
+import com.infinityraider.infinitylib.block.multiblock.MultiBlockPartData;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.network.NetworkDirection;
+import net.minecraftforge.fml.network.NetworkEvent;
+
+/**
+ * Syncs the creation or teardown of an entire multi-block structure to the client in a single message,
+ * the client reconstructs the part data for every component from the origin and size.
+ */
+public class MessageSyncMultiBlock extends MessageBase {
+    private BlockPos origin;
+    private int sizeX;
+    private int sizeY;
+    private int sizeZ;
+    private boolean formed;
+
+    public MessageSyncMultiBlock() {
+        super();
+    }
+
+    public MessageSyncMultiBlock(BlockPos origin, int sizeX, int sizeY, int sizeZ, boolean formed) {
+        this();
+        this.origin = origin;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.formed = formed;
+    }
+
+    public void sendToAllAround(World world) {
+        double range = 128 + Math.max(this.sizeX, Math.max(this.sizeY, this.sizeZ));
+        this.sendToAllAround(world,
+                this.origin.getX() + this.sizeX / 2.0, this.origin.getY() + this.sizeY / 2.0, this.origin.getZ() + this.sizeZ / 2.0,
+                range);
+    }
+
+    @Override
+    public NetworkDirection getMessageDirection() {
+        return NetworkDirection.PLAY_TO_CLIENT;
+    }
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    protected void processMessage(NetworkEvent.Context ctx) {
+        World world = InfinityLib.instance.getClientWorld();
+        if (world == null || this.origin == null) {
+            return;
+        }
+        BlockPos.Mutable cursor = new BlockPos.Mutable();
+        for (int x = 0; x < this.sizeX; x++) {
+            for (int y = 0; y < this.sizeY; y++) {
+                for (int z = 0; z < this.sizeZ; z++) {
+                    cursor.setPos(this.origin.getX() + x, this.origin.getY() + y, this.origin.getZ() + z);
+                    TileEntity tile = world.getTileEntity(cursor);
+                    if (!(tile instanceof IMultiBlockComponent)) {
+                        continue;
+                    }
+                    IMultiBlockComponent component = (IMultiBlockComponent) tile;
+                    // Only components using the default part data can be reconstructed
+                    if (component.getMultiBlockManager() instanceof MultiBlockManager) {
+                        component.setMultiBlockPartDataBulk(this.formed
+                                ? new MultiBlockPartData(x, y, z, this.sizeX, this.sizeY, this.sizeZ)
+                                : new MultiBlockPartData(0, 0, 0, 1, 1, 1));
+                    }
+                }
+            }
+        }
+        InfinityLib.instance.proxy().forceClientRenderUpdate(this.origin,
+                this.origin.add(this.sizeX - 1, this.sizeY - 1, this.sizeZ - 1));
+    }
+}
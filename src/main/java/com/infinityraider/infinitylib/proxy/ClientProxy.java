@@ -11,6 +11,7 @@ import com.infinityraider.infinitylib.entity.IInfinityEntityType;
 import com.infinityraider.infinitylib.item.IInfinityItem;
 import com.infinityraider.infinitylib.modules.Module;
 import com.infinityraider.infinitylib.proxy.base.IClientProxyBase;
+import com.infinityraider.infinitylib.render.QuadCache;
 import com.infinityraider.infinitylib.render.item.InfItemRendererRegistry;
 import com.infinityraider.infinitylib.render.model.TransformingFaceBakery;
 import com.infinityraider.infinitylib.render.model.ModelLoaderRegistrar;
@@ -59,12 +60,14 @@ public class ClientProxy implements IProxy, IClientProxyBase<Config> {
     public void registerFMLEventHandlers(IEventBus bus) {
         IProxy.super.registerFMLEventHandlers(bus);
         bus.addListener(ModelLoaderRegistrar.getInstance()::registerModelLoaders);
+        bus.addListener(QuadCache::onModelBake);
     }
 
     @Override
     public void registerEventHandlers() {
         IProxy.super.registerEventHandlers();
         this.registerEventHandler(ModelLoaderRegistrar.getInstance());
+        this.registerEventHandler(TileEntityRendererWrapper.FrameCounter.getInstance());
         for (Module module : Module.getActiveModules()) {
             module.getClientEventHandlers().forEach(this::registerEventHandler);
         }
@@ -141,4 +144,9 @@ public class ClientProxy implements IProxy, IClientProxyBase<Config> {
     public void forceClientRenderUpdate(BlockPos pos) {
         Minecraft.getInstance().worldRenderer.markBlockRangeForRenderUpdate(pos.getX(), pos.getY(), pos.getZ(), pos.getX(), pos.getY(), pos.getZ());
     }
+
+    @Override
+    public void forceClientRenderUpdate(BlockPos min, BlockPos max) {
+        Minecraft.getInstance().worldRenderer.markBlockRangeForRenderUpdate(min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ());
+    }
 }
@@ -2,7 +2,9 @@ package com.infinityraider.infinitylib.proxy;
 
 import com.infinityraider.infinitylib.InfinityMod;
 import com.infinityraider.infinitylib.block.IInfinityBlock;
+import com.infinityraider.infinitylib.block.multiblock.MultiBlockIndexHandler;
 import com.infinityraider.infinitylib.block.tile.IInfinityTileEntityType;
+import com.infinityraider.infinitylib.block.tile.TileSyncHandler;
 import com.infinityraider.infinitylib.config.Config;
 import com.infinityraider.infinitylib.container.IInfinityContainerType;
 import com.infinityraider.infinitylib.crafting.FallbackIngredient;
@@ -11,6 +13,11 @@ import com.infinityraider.infinitylib.enchantment.IInfinityEnchantment;
 import com.infinityraider.infinitylib.entity.AmbientSpawnHandler;
 import com.infinityraider.infinitylib.entity.IInfinityEntityType;
 import com.infinityraider.infinitylib.entity.IInfinityLivingEntityType;
+import com.infinityraider.infinitylib.entity.ai.pathfinding.PathCalculator;
+import com.infinityraider.infinitylib.entity.ai.pathfinding.PathFlowFieldService;
+import com.infinityraider.infinitylib.entity.ai.pathfinding.PathMetrics;
+import com.infinityraider.infinitylib.entity.ai.pathfinding.PathPlanHandler;
+import com.infinityraider.infinitylib.entity.ai.pathfinding.PathSectionCache;
 import com.infinityraider.infinitylib.item.IInfinityItem;
 import com.infinityraider.infinitylib.modules.Module;
 import com.infinityraider.infinitylib.proxy.base.IProxyBase;
@@ -24,6 +31,8 @@ import net.minecraft.item.SpawnEggItem;
 import net.minecraft.util.math.BlockPos;
 import net.minecraftforge.common.ForgeConfigSpec;
 import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
+import net.minecraftforge.fml.event.server.FMLServerStartingEvent;
+import net.minecraftforge.fml.event.server.FMLServerStoppingEvent;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
 import net.minecraftforge.registries.DeferredRegister;
 import net.minecraftforge.registries.ForgeRegistries;
@@ -46,6 +55,12 @@ public interface IProxy extends IProxyBase<Config> {
             module.getCommonEventHandlers().forEach(this::registerEventHandler);
         });
         this.registerEventHandler(AmbientSpawnHandler.getInstance());
+        this.registerEventHandler(TileSyncHandler.getInstance());
+        this.registerEventHandler(MultiBlockIndexHandler.getInstance());
+        this.registerEventHandler(PathSectionCache.getInstance());
+        this.registerEventHandler(PathPlanHandler.getInstance());
+        this.registerEventHandler(PathFlowFieldService.getInstance());
+        this.registerEventHandler(PathMetrics.getInstance());
     }
 
     @Override
@@ -64,8 +79,20 @@ public interface IProxy extends IProxyBase<Config> {
         FallbackIngredient.registerSerializer();
     }
 
+    @Override
+    default void onServerStartingEvent(final FMLServerStartingEvent event) {
+        PathCalculator.getInstance().start();
+    }
+
+    @Override
+    default void onServerStoppingEvent(final FMLServerStoppingEvent event) {
+        PathCalculator.getInstance().cancel();
+    }
+
     default void forceClientRenderUpdate(BlockPos pos) {}
 
+    default void forceClientRenderUpdate(BlockPos min, BlockPos max) {}
+
     /**
      * -------------------
      * REGISTERING METHODS
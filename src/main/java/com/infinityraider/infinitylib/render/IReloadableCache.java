@@ -0,0 +1,15 @@
+package com.infinityraider.infinitylib.render;
+
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+
+/**
+ * Cache of render data which has to be cleared on resource reload, see QuadCache.registerForReload()
+ */
+@OnlyIn(Dist.CLIENT)
+public interface IReloadableCache {
+    /**
+     * Discards all cached data
+     */
+    void clear();
+}
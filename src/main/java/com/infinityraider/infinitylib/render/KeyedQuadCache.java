@@ -0,0 +1,153 @@
+package com.infinityraider.infinitylib.render;
+
+import net.minecraft.client.renderer.model.BakedQuad;
+import net.minecraft.util.Direction;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+
+import javax.annotation.Nullable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of quads for dynamic models, holding a QuadCache per key.
+ * Keys identify a variant of the model, for instance its BlockState, or an object holding the relevant model data values,
+ * and must implement equals() and hashCode() accordingly.
+ *
+ * The quads of every key are baked once, also when requested concurrently. When the cache is full, the least recently
+ * used key is evicted. The cache is cleared on resource reload.
+ *
+ * @param <K> the key type
+ */
+@OnlyIn(Dist.CLIENT)
+public class KeyedQuadCache<K> implements IReloadableCache {
+    private final int maxSize;
+    private final Function<K, QuadCache> factory;
+    private final LinkedHashMap<K, QuadCache> entries;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    /**
+     * Creates a cache which bakes the quads of every key per face
+     * @param maxSize the maximum number of keys
+     * @param quadBaker baker of the quads for a key and face
+     */
+    public KeyedQuadCache(int maxSize, BiFunction<K, Direction, List<BakedQuad>> quadBaker) {
+        this(maxSize, key -> new QuadCache(face -> quadBaker.apply(key, face), false));
+    }
+
+    private KeyedQuadCache(int maxSize, Function<K, QuadCache> factory) {
+        this.maxSize = Math.max(1, maxSize);
+        this.factory = factory;
+        this.entries = new LinkedHashMap<K, QuadCache>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, QuadCache> eldest) {
+                if (this.size() > KeyedQuadCache.this.maxSize) {
+                    KeyedQuadCache.this.evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.evictions = new LongAdder();
+        QuadCache.registerForReload(this);
+    }
+
+    /**
+     * Creates a cache which bakes all quads of every key in a single pass, see QuadCache.bucketed()
+     * @param maxSize the maximum number of keys
+     * @param quadBaker baker returning all quads for a key
+     * @param <K> the key type
+     * @return the cache
+     */
+    public static <K> KeyedQuadCache<K> bucketed(int maxSize, Function<K, List<BakedQuad>> quadBaker) {
+        return new KeyedQuadCache<>(maxSize, key -> new QuadCache(() -> quadBaker.apply(key), false));
+    }
+
+    /**
+     * Fetches the quads for a key and face, baking them if needed
+     * @param key the key
+     * @param face the face
+     * @return the quads
+     */
+    public List<BakedQuad> getQuads(K key, @Nullable Direction face) {
+        QuadCache cache;
+        synchronized (this) {
+            cache = this.entries.get(key);
+            if (cache == null) {
+                this.misses.increment();
+                cache = this.factory.apply(key);
+                this.entries.put(key, cache);
+            } else {
+                this.hits.increment();
+            }
+        }
+        // Baking happens outside of the lock, the QuadCache makes sure it only happens once
+        return cache.getQuads(face);
+    }
+
+    /**
+     * Removes a single key from the cache
+     * @param key the key
+     */
+    public synchronized void invalidate(K key) {
+        this.entries.remove(key);
+    }
+
+    @Override
+    public synchronized void clear() {
+        this.entries.clear();
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    /**
+     * @return the fraction of lookups which were hits, 0 if there have not been any lookups
+     */
+    public double getHitRate() {
+        long hits = this.getHitCount();
+        long total = hits + this.getMissCount();
+        return total == 0 ? 0 : ((double) hits) / total;
+    }
+
+    /**
+     * @return an estimate of the memory held by the baked quads of all keys, in bytes
+     */
+    public long getMemoryEstimate() {
+        QuadCache[] caches;
+        synchronized (this) {
+            caches = this.entries.values().toArray(new QuadCache[0]);
+        }
+        long memory = 0;
+        for (QuadCache cache : caches) {
+            memory += cache.getMemoryEstimate();
+        }
+        return memory;
+    }
+}
@@ -0,0 +1,237 @@
+package com.infinityraider.infinitylib.render;
+
+import com.google.common.collect.ImmutableList;
+import net.minecraft.client.renderer.model.BakedQuad;
+import net.minecraft.util.Direction;
+import net.minecraft.util.math.vector.Matrix3f;
+import net.minecraft.util.math.vector.Matrix4f;
+import net.minecraft.util.math.vector.TransformationMatrix;
+import net.minecraft.util.math.vector.Vector3i;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+import net.minecraftforge.client.model.QuadTransformer;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * One of the 24 axis-aligned rotations of a block around its center.
+ * An orientation is defined by the directions the front (north) and the top (up) of the block are rotated to.
+ *
+ * Orientations are created once and shared, every orientation holds its matrices, QuadTransformer and a lookup table for
+ * the rotated directions, so rotated models do not have to derive these again for every render.
+ */
+@OnlyIn(Dist.CLIENT)
+public final class Orientation {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final Orientation[] ORIENTATIONS = new Orientation[DIRECTIONS.length * DIRECTIONS.length];
+    private static final List<Orientation> VALUES;
+
+    static {
+        ImmutableList.Builder<Orientation> values = ImmutableList.builder();
+        int index = 0;
+        for (Direction front : DIRECTIONS) {
+            for (Direction top : DIRECTIONS) {
+                if (front.getAxis() != top.getAxis()) {
+                    Orientation orientation = new Orientation(index++, front, top);
+                    ORIENTATIONS[key(front, top)] = orientation;
+                    values.add(orientation);
+                }
+            }
+        }
+        VALUES = values.build();
+    }
+
+    /** The identity orientation */
+    public static final Orientation DEFAULT = get(Direction.NORTH, Direction.UP);
+
+    /**
+     * @return all 24 orientations, ordered by their index
+     */
+    public static List<Orientation> values() {
+        return VALUES;
+    }
+
+    public static Orientation byIndex(int index) {
+        return VALUES.get(index);
+    }
+
+    /**
+     * Fetches the orientation rotating the front of a block to a direction, as used by IRotatableTile.
+     * For horizontal directions the top stays up, for vertical directions the block is tilted forwards or backwards.
+     * @param front the direction the front is rotated to
+     * @return the orientation
+     */
+    public static Orientation get(Direction front) {
+        switch (front) {
+            case UP:
+                return get(front, Direction.SOUTH);
+            case DOWN:
+                return get(front, Direction.NORTH);
+            default:
+                return get(front, Direction.UP);
+        }
+    }
+
+    /**
+     * Fetches the orientation rotating the front and top of a block to two directions
+     * @param front the direction the front is rotated to
+     * @param top the direction the top is rotated to, must be perpendicular to the front
+     * @return the orientation
+     */
+    public static Orientation get(Direction front, Direction top) {
+        Orientation orientation = ORIENTATIONS[key(front, top)];
+        if (orientation == null) {
+            throw new IllegalArgumentException("The front (" + front + ") and top (" + top + ") of an orientation must be perpendicular");
+        }
+        return orientation;
+    }
+
+    private static int key(Direction front, Direction top) {
+        return front.ordinal() * DIRECTIONS.length + top.ordinal();
+    }
+
+    private final int index;
+    private final Direction front;
+    private final Direction top;
+    private final Matrix4f matrix;
+    private final Matrix3f normalMatrix;
+    private final TransformationMatrix transformation;
+    private final QuadTransformer transformer;
+    private final Direction[] rotated;
+    private final Direction[] inverse;
+
+    private Orientation(int index, Direction front, Direction top) {
+        this.index = index;
+        this.front = front;
+        this.top = top;
+        // The columns of the rotation are the images of east, up and south
+        Vector3i y = top.getDirectionVec();
+        Vector3i z = front.getOpposite().getDirectionVec();
+        Vector3i x = y.crossProduct(z);
+        int[][] rotation = new int[][] {
+                {x.getX(), y.getX(), z.getX()},
+                {x.getY(), y.getY(), z.getY()},
+                {x.getZ(), y.getZ(), z.getZ()}
+        };
+        // Rotate around the center of the block
+        float[] values = new float[16];
+        for (int row = 0; row < 3; row++) {
+            float translation = 0.5F;
+            for (int col = 0; col < 3; col++) {
+                values[4 * row + col] = rotation[row][col];
+                translation -= 0.5F * rotation[row][col];
+            }
+            values[4 * row + 3] = translation;
+        }
+        values[15] = 1;
+        this.matrix = new Matrix4f(values);
+        this.normalMatrix = new Matrix3f(this.matrix);
+        this.transformation = new TransformationMatrix(this.matrix);
+        this.transformer = new QuadTransformer(this.transformation);
+        this.rotated = new Direction[DIRECTIONS.length];
+        this.inverse = new Direction[DIRECTIONS.length];
+        for (Direction dir : DIRECTIONS) {
+            Vector3i vec = dir.getDirectionVec();
+            Direction result = Direction.getFacingFromVector(
+                    rotation[0][0] * vec.getX() + rotation[0][1] * vec.getY() + rotation[0][2] * vec.getZ(),
+                    rotation[1][0] * vec.getX() + rotation[1][1] * vec.getY() + rotation[1][2] * vec.getZ(),
+                    rotation[2][0] * vec.getX() + rotation[2][1] * vec.getY() + rotation[2][2] * vec.getZ());
+            this.rotated[dir.ordinal()] = result;
+            this.inverse[result.ordinal()] = dir;
+        }
+    }
+
+    /**
+     * @return the index of this orientation, between 0 and 23
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+    public Direction getFront() {
+        return this.front;
+    }
+
+    public Direction getTop() {
+        return this.top;
+    }
+
+    public boolean isIdentity() {
+        return this == DEFAULT;
+    }
+
+    /**
+     * @return a copy of the rotation matrix around the center of the block
+     */
+    public Matrix4f getMatrix() {
+        return this.matrix.copy();
+    }
+
+    /**
+     * @return a copy of the rotation matrix for normals
+     */
+    public Matrix3f getNormalMatrix() {
+        return this.normalMatrix.copy();
+    }
+
+    public TransformationMatrix getTransformation() {
+        return this.transformation;
+    }
+
+    public QuadTransformer getQuadTransformer() {
+        return this.transformer;
+    }
+
+    /**
+     * @param dir a direction
+     * @return the direction after rotation
+     */
+    @Nullable
+    public Direction rotate(@Nullable Direction dir) {
+        return dir == null ? null : this.rotated[dir.ordinal()];
+    }
+
+    /**
+     * @param dir a rotated direction
+     * @return the direction before rotation
+     */
+    @Nullable
+    public Direction inverseRotate(@Nullable Direction dir) {
+        return dir == null ? null : this.inverse[dir.ordinal()];
+    }
+
+    /**
+     * Rotates a quad, including its orientation
+     * @param quad the quad
+     * @return the rotated quad
+     */
+    public BakedQuad transform(BakedQuad quad) {
+        if (this.isIdentity()) {
+            return quad;
+        }
+        return new BakedQuad(this.transformer.processOne(quad).getVertexData(), quad.getTintIndex(),
+                this.rotate(quad.getFace()), quad.getSprite(), quad.applyDiffuseLighting());
+    }
+
+    /**
+     * Rotates quads, including their orientation
+     * @param quads the quads
+     * @return an immutable list of the rotated quads
+     */
+    public List<BakedQuad> transform(List<BakedQuad> quads) {
+        if (this.isIdentity()) {
+            return ImmutableList.copyOf(quads);
+        }
+        ImmutableList.Builder<BakedQuad> rotated = ImmutableList.builder();
+        for (BakedQuad quad : quads) {
+            rotated.add(this.transform(quad));
+        }
+        return rotated.build();
+    }
+
+    @Override
+    public String toString() {
+        return "Orientation{front=" + this.front + ", top=" + this.top + "}";
+    }
+}
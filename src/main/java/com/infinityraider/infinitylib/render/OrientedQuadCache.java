@@ -0,0 +1,78 @@
+package com.infinityraider.infinitylib.render;
+
+import net.minecraft.client.renderer.model.BakedQuad;
+import net.minecraft.util.Direction;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Caches the quads of a model in each of the 24 orientations.
+ * The quads of the model are baked once in the default orientation, every orientation is transformed once when it is first requested
+ * and reused afterwards. The cache is cleared on resource reload.
+ */
+@OnlyIn(Dist.CLIENT)
+public class OrientedQuadCache implements IReloadableCache {
+    private static final int FACES = Direction.values().length + 1;
+
+    private final QuadCache source;
+    private final AtomicReferenceArray<List<BakedQuad>> quads;
+
+    /**
+     * Creates a cache which bakes the quads of the model per face
+     * @param quadBaker baker of the quads in the default orientation
+     */
+    public OrientedQuadCache(Function<Direction, List<BakedQuad>> quadBaker) {
+        this(new QuadCache(quadBaker, false));
+    }
+
+    private OrientedQuadCache(QuadCache source) {
+        this.source = source;
+        this.quads = new AtomicReferenceArray<>(Orientation.values().size() * FACES);
+        QuadCache.registerForReload(this);
+    }
+
+    /**
+     * Creates a cache which bakes all quads of the model in a single pass, see QuadCache.bucketed()
+     * @param quadBaker baker returning all quads in the default orientation
+     * @return the cache
+     */
+    public static OrientedQuadCache bucketed(Supplier<List<BakedQuad>> quadBaker) {
+        return new OrientedQuadCache(new QuadCache(quadBaker, false));
+    }
+
+    /**
+     * Fetches the quads of the rotated model
+     * @param orientation the orientation
+     * @param face the face of the rotated model
+     * @return the rotated quads
+     */
+    public List<BakedQuad> getQuads(Orientation orientation, @Nullable Direction face) {
+        if (orientation.isIdentity()) {
+            return this.source.getQuads(face);
+        }
+        int index = orientation.getIndex() * FACES + (face == null ? FACES - 1 : face.ordinal());
+        List<BakedQuad> quads = this.quads.get(index);
+        if (quads == null) {
+            // Transforming is deterministic, concurrent callers may both transform, but will store equal lists
+            quads = orientation.transform(this.source.getQuads(orientation.inverseRotate(face)));
+            if (!this.quads.compareAndSet(index, null, quads)) {
+                quads = this.quads.get(index);
+            }
+        }
+        return quads;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < this.quads.length(); i++) {
+            this.quads.set(i, null);
+        }
+        this.source.clear();
+    }
+}
@@ -1,39 +1,244 @@
 package com.infinityraider.infinitylib.render;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import net.minecraft.client.renderer.model.BakedQuad;
+import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
 import net.minecraft.util.Direction;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
+import net.minecraftforge.client.event.ModelBakeEvent;
 
 import javax.annotation.Nullable;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * Caches the quads of a model per face. Quads are baked lazily, either:
+ *  - per face: the baker is called once for every face, and once for null
+ *  - bucketed: the baker is called once and returns all quads, which are sorted into buckets by their cull face,
+ *    see bucketed()
+ * Quads are baked at most once, concurrent callers wait for the bake to complete.
+ * All caches are cleared when the models are baked again after a resource reload, as the sprites they refer to are replaced.
+ * For caches holding quads per block state or model data, see KeyedQuadCache.
+ */
 @OnlyIn(Dist.CLIENT)
-public class QuadCache {
+public class QuadCache implements IReloadableCache {
+    /** Index of the bucket for quads without cull face */
+    private static final int GENERAL = Direction.values().length;
+    /** Maximum distance between a vertex and a face of the block for the vertex to be considered on that face */
+    private static final float EPSILON = 1.0E-4F;
+    /** Estimated memory footprint of a quad besides its vertex data, in bytes */
+    private static final int QUAD_OVERHEAD = 48;
+
+    /** All caches which are cleared on resource reload */
+    private static final Set<IReloadableCache> CACHES = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    /**
+     * Registers a cache to be cleared on resource reload, the cache is held weakly
+     * @param cache the cache
+     */
+    public static void registerForReload(IReloadableCache cache) {
+        CACHES.add(cache);
+    }
+
+    /**
+     * Clears all caches, called when the models are baked after a resource reload
+     */
+    @SuppressWarnings("unused")
+    public static void onModelBake(ModelBakeEvent event) {
+        synchronized (CACHES) {
+            CACHES.forEach(IReloadableCache::clear);
+        }
+    }
+
     private final Map<Direction, SafeQuadStore> dirQuads;
     private final SafeQuadStore nullQuads;
+    private final BucketedQuadStore buckets;
 
     public QuadCache(Function<Direction, List<BakedQuad>> quadBaker) {
+        this(quadBaker, true);
+    }
+
+    QuadCache(Function<Direction, List<BakedQuad>> quadBaker, boolean register) {
         this.dirQuads = Maps.newConcurrentMap();
         Arrays.stream(Direction.values()).forEach(face -> dirQuads.put(face, new SafeQuadStore(face, quadBaker)));
         this.nullQuads = new SafeQuadStore(null, quadBaker);
+        this.buckets = null;
+        if (register) {
+            registerForReload(this);
+        }
+    }
+
+    QuadCache(Supplier<List<BakedQuad>> quadBaker, boolean register) {
+        this.dirQuads = null;
+        this.nullQuads = null;
+        this.buckets = new BucketedQuadStore(quadBaker);
+        if (register) {
+            registerForReload(this);
+        }
+    }
+
+    /**
+     * Creates a cache which bakes all quads in a single pass, rather than once per face.
+     * For a TessellatorBakedQuad, the baker should set the current face to Face.GENERAL and tessellate everything.
+     *
+     * Every quad ends up in exactly one bucket: quads lying on a face of the block, and facing outwards, are culled by that face,
+     * all other quads are returned for the null face.
+     *
+     * @param quadBaker baker returning all quads
+     * @return the cache
+     */
+    public static QuadCache bucketed(Supplier<List<BakedQuad>> quadBaker) {
+        return new QuadCache(quadBaker, true);
     }
 
     public List<BakedQuad> getQuads(@Nullable Direction face) {
+        if (this.buckets != null) {
+            return this.buckets.getQuads(face);
+        }
         return face == null ? this.nullQuads.getQuads() : this.dirQuads.get(face).getQuads();
     }
 
+    /**
+     * Discards all baked quads, they are baked again when requested
+     */
+    @Override
+    public void clear() {
+        if (this.buckets != null) {
+            this.buckets.clear();
+        } else {
+            this.nullQuads.clear();
+            this.dirQuads.values().forEach(SafeQuadStore::clear);
+        }
+    }
+
+    /**
+     * @return an estimate of the memory held by the baked quads, in bytes
+     */
+    public long getMemoryEstimate() {
+        if (this.buckets != null) {
+            return this.buckets.getMemoryEstimate();
+        }
+        long memory = this.nullQuads.getMemoryEstimate();
+        for (SafeQuadStore store : this.dirQuads.values()) {
+            memory += store.getMemoryEstimate();
+        }
+        return memory;
+    }
+
+    private static long getMemoryEstimate(@Nullable List<BakedQuad> quads) {
+        long memory = 0;
+        if (quads != null) {
+            for (BakedQuad quad : quads) {
+                memory += QUAD_OVERHEAD + 4L * quad.getVertexData().length;
+            }
+        }
+        return memory;
+    }
+
+    /**
+     * Determines the cull face of a quad in the block vertex format
+     * @param quad the quad
+     * @return the face of the block the quad lies on, or null if it does not lie on a face of the block
+     */
+    @Nullable
+    public static Direction getCullFace(BakedQuad quad) {
+        Direction face = quad.getFace();
+        if (face == null) {
+            return null;
+        }
+        int[] data = quad.getVertexData();
+        int stride = DefaultVertexFormats.BLOCK.getIntegerSize();
+        int axis = face.getAxis().ordinal();
+        float plane = face.getAxisDirection() == Direction.AxisDirection.POSITIVE ? 1 : 0;
+        // The position is the first element of the block format
+        for (int offset = axis; offset < data.length; offset += stride) {
+            if (Math.abs(Float.intBitsToFloat(data[offset]) - plane) > EPSILON) {
+                return null;
+            }
+        }
+        return face;
+    }
+
+    private static final class BucketedQuadStore {
+        private final Supplier<List<BakedQuad>> quadBaker;
+
+        private volatile List<List<BakedQuad>> buckets;
+        /** Thread which is baking, guarded by this store's monitor */
+        private Thread bakingThread;
+
+        private BucketedQuadStore(Supplier<List<BakedQuad>> quadBaker) {
+            this.quadBaker = quadBaker;
+        }
+
+        public List<BakedQuad> getQuads(@Nullable Direction face) {
+            List<List<BakedQuad>> buckets = this.buckets;
+            if (buckets == null) {
+                synchronized (this) {
+                    buckets = this.buckets;
+                    if (buckets == null) {
+                        if (this.bakingThread == Thread.currentThread()) {
+                            // The baker requested its own quads
+                            return ImmutableList.of();
+                        }
+                        this.bakingThread = Thread.currentThread();
+                        try {
+                            buckets = this.bake();
+                        } finally {
+                            this.bakingThread = null;
+                        }
+                        this.buckets = buckets;
+                    }
+                }
+            }
+            return buckets.get(face == null ? GENERAL : face.ordinal());
+        }
+
+        public synchronized void clear() {
+            this.buckets = null;
+        }
+
+        public long getMemoryEstimate() {
+            List<List<BakedQuad>> buckets = this.buckets;
+            long memory = 0;
+            if (buckets != null) {
+                for (List<BakedQuad> bucket : buckets) {
+                    memory += QuadCache.getMemoryEstimate(bucket);
+                }
+            }
+            return memory;
+        }
+
+        private List<List<BakedQuad>> bake() {
+            List<ImmutableList.Builder<BakedQuad>> builders = Lists.newArrayListWithCapacity(GENERAL + 1);
+            for (int i = 0; i <= GENERAL; i++) {
+                builders.add(ImmutableList.builder());
+            }
+            for (BakedQuad quad : this.quadBaker.get()) {
+                Direction cullFace = getCullFace(quad);
+                builders.get(cullFace == null ? GENERAL : cullFace.ordinal()).add(quad);
+            }
+            ImmutableList.Builder<List<BakedQuad>> buckets = ImmutableList.builder();
+            builders.forEach(builder -> buckets.add(builder.build()));
+            return buckets.build();
+        }
+    }
+
     private static final class SafeQuadStore {
         private final Direction face;
         private final Function<Direction, List<BakedQuad>> quadBaker;
 
-        private List<BakedQuad> quads;
-        private boolean baking;
+        private volatile List<BakedQuad> quads;
+        /** Thread which is baking, guarded by this store's monitor */
+        private Thread bakingThread;
 
         private SafeQuadStore(@Nullable Direction face, Function<Direction, List<BakedQuad>> quadBaker) {
             this.face = face;
@@ -46,15 +251,34 @@ public class QuadCache {
         }
 
         public List<BakedQuad> getQuads() {
-            if (this.quads == null) {
-                if (this.baking) {
-                    return ImmutableList.of();
-                } else {
-                    this.baking = true;
-                    this.quads = ImmutableList.copyOf(this.quadBaker.apply(this.getFace()));
+            List<BakedQuad> quads = this.quads;
+            if (quads == null) {
+                synchronized (this) {
+                    quads = this.quads;
+                    if (quads == null) {
+                        if (this.bakingThread == Thread.currentThread()) {
+                            // The baker requested its own quads
+                            return ImmutableList.of();
+                        }
+                        this.bakingThread = Thread.currentThread();
+                        try {
+                            quads = ImmutableList.copyOf(this.quadBaker.apply(this.getFace()));
+                        } finally {
+                            this.bakingThread = null;
+                        }
+                        this.quads = quads;
+                    }
                 }
             }
-            return this.quads;
+            return quads;
+        }
+
+        public synchronized void clear() {
+            this.quads = null;
+        }
+
+        public long getMemoryEstimate() {
+            return QuadCache.getMemoryEstimate(this.quads);
         }
     }
 }
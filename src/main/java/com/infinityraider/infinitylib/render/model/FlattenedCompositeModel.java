@@ -0,0 +1,111 @@
+package com.infinityraider.infinitylib.render.model;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.minecraft.block.BlockState;
+import net.minecraft.client.renderer.model.*;
+import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.util.Direction;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+import net.minecraftforge.client.model.CompositeModel;
+import net.minecraftforge.client.model.data.EmptyModelData;
+import net.minecraftforge.client.model.data.IModelData;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+
+/**
+ * Composite model which merges the quads of its static parts at bake time.
+ * Parts which are plain SimpleBakedModels do not depend on the block state, random, model data or render layer,
+ * their quads are merged and deduplicated into one immutable list per face, which is returned without allocation.
+ * All other parts are queried dynamically, with their own model data, and appended to the merged quads.
+ */
+@OnlyIn(Dist.CLIENT)
+public class FlattenedCompositeModel extends CompositeModel {
+    private static final int GENERAL = Direction.values().length;
+
+    private final List<List<BakedQuad>> staticQuads;
+    private final ImmutableMap<String, IBakedModel> dynamicParts;
+
+    public FlattenedCompositeModel(boolean isGui3d, boolean isSideLit, boolean isAmbientOcclusion, TextureAtlasSprite particle,
+                                   ImmutableMap<String, IBakedModel> bakedParts, IModelTransform combinedTransform, ItemOverrideList overrides) {
+        super(isGui3d, isSideLit, isAmbientOcclusion, particle, bakedParts, combinedTransform, overrides);
+        ImmutableMap.Builder<String, IBakedModel> dynamicParts = ImmutableMap.builder();
+        List<IBakedModel> staticParts = new ArrayList<>();
+        bakedParts.forEach((name, part) -> {
+            if (part.getClass() == SimpleBakedModel.class) {
+                staticParts.add(part);
+            } else {
+                dynamicParts.put(name, part);
+            }
+        });
+        this.dynamicParts = dynamicParts.build();
+        ImmutableList.Builder<List<BakedQuad>> staticQuads = ImmutableList.builder();
+        for (int index = 0; index <= GENERAL; index++) {
+            Direction face = index == GENERAL ? null : Direction.byIndex(index);
+            staticQuads.add(flatten(staticParts, face));
+        }
+        this.staticQuads = staticQuads.build();
+    }
+
+    private static List<BakedQuad> flatten(List<IBakedModel> parts, @Nullable Direction face) {
+        Set<QuadKey> quads = new LinkedHashSet<>();
+        Random rand = new Random(0);
+        for (IBakedModel part : parts) {
+            part.getQuads(null, face, rand, EmptyModelData.INSTANCE).forEach(quad -> quads.add(new QuadKey(quad)));
+        }
+        ImmutableList.Builder<BakedQuad> builder = ImmutableList.builder();
+        quads.forEach(key -> builder.add(key.quad));
+        return builder.build();
+    }
+
+    @Nonnull
+    @Override
+    public List<BakedQuad> getQuads(@Nullable BlockState state, @Nullable Direction side, @Nonnull Random rand, @Nonnull IModelData extraData) {
+        List<BakedQuad> quads = this.staticQuads.get(side == null ? GENERAL : side.getIndex());
+        if (this.dynamicParts.isEmpty()) {
+            return quads;
+        }
+        List<BakedQuad> merged = new ArrayList<>(quads);
+        SubmodelModelData data = extraData.getData(SUBMODEL_DATA);
+        this.dynamicParts.forEach((name, part) -> merged.addAll(part.getQuads(state, side, rand,
+                data == null ? EmptyModelData.INSTANCE : data.getSubmodelData(name))));
+        return merged;
+    }
+
+    /**
+     * Compares quads by content, as the same quad may be baked by multiple parts
+     */
+    private static final class QuadKey {
+        private final BakedQuad quad;
+        private final int hash;
+
+        private QuadKey(BakedQuad quad) {
+            this.quad = quad;
+            this.hash = Objects.hash(Arrays.hashCode(quad.getVertexData()), quad.getTintIndex(), quad.getFace(), quad.getSprite());
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof QuadKey)) {
+                return false;
+            }
+            BakedQuad other = ((QuadKey) obj).quad;
+            return this.quad == other || (this.quad.getTintIndex() == other.getTintIndex()
+                    && this.quad.getFace() == other.getFace()
+                    && this.quad.getSprite() == other.getSprite()
+                    && this.quad.applyDiffuseLighting() == other.applyDiffuseLighting()
+                    && Arrays.equals(this.quad.getVertexData(), other.getVertexData()));
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.infinityraider.infinitylib.render.model;
+
+import com.infinityraider.infinitylib.render.tessellation.ITessellator;
+import net.minecraft.client.renderer.model.RenderMaterial;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+import net.minecraftforge.client.model.IModelConfiguration;
+
+import java.util.Collection;
+
+/**
+ * Geometry described in code, which is baked into a static model by InfModelLoaderTessellated.
+ * Implementations must be registered with InfModelLoaderTessellated.registerGeometry() and are referenced from model
+ * json files by their id:
+ *
+ * {
+ *     "loader": "infinitylib:tessellated",
+ *     "geometry": "modid:geometry_id",
+ *     "variant": "optional_variant",
+ *     "textures": { ... }
+ * }
+ *
+ * The geometry is tessellated once per model during model baking, rotations defined in the blockstate json are applied afterwards.
+ */
+@OnlyIn(Dist.CLIENT)
+public interface ITessellatedGeometry {
+    /**
+     * Collects the textures used by the geometry, in order for them to be stitched onto the block atlas.
+     * Textures defined in the model json can be resolved through owner.resolveTexture()
+     * @param owner the model configuration
+     * @param variant the variant defined in the model json, empty if none is defined
+     * @return the textures
+     */
+    Collection<RenderMaterial> getTextures(IModelConfiguration owner, String variant);
+
+    /**
+     * Tessellates the geometry, the tessellator has already started drawing quads in the block vertex format.
+     * Textures are resolved through tessellator.getIcon(), the tessellator must not be drawn.
+     * @param tessellator the tessellator
+     * @param owner the model configuration
+     * @param variant the variant defined in the model json, empty if none is defined
+     */
+    void tessellate(ITessellator tessellator, IModelConfiguration owner, String variant);
+}
@@ -20,6 +20,8 @@ import net.minecraftforge.client.model.geometry.IModelGeometryPart;
 import net.minecraftforge.client.model.geometry.IMultipartModelGeometry;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Function;
 
 import static net.minecraft.client.renderer.model.ItemTransformVec3f.Deserializer.*;
@@ -142,16 +144,32 @@ public class InfModelLoaderComposite implements InfModelLoader<InfModelLoaderCom
             RenderMaterial particleLocation = owner.resolveTexture("particle");
             TextureAtlasSprite particle = spriteGetter.apply(particleLocation);
 
+            // Sub-models which do not touch the model bakery are baked in parallel, the others are baked on this thread
+            TransformingFaceBakery.Context context = TransformingFaceBakery.getInstance().captureContext();
+            Map<String, ForkJoinTask<IBakedModel>> tasks = new HashMap<>();
+            if (parts.values().stream().filter(part -> owner.getPartVisibility(part) && part.canBakeInParallel()).count() > 1) {
+                for (Map.Entry<String, Submodel> part : parts.entrySet()) {
+                    Submodel submodel = part.getValue();
+                    if (owner.getPartVisibility(submodel) && submodel.canBakeInParallel()) {
+                        tasks.put(part.getKey(), ForkJoinPool.commonPool().submit(
+                                () -> submodel.bakeModel(context, bakery, spriteGetter, modelTransform, modelLocation)));
+                    }
+                }
+            }
+
             ImmutableMap.Builder<String, IBakedModel> bakedParts = ImmutableMap.builder();
             for (Map.Entry<String, Submodel> part : parts.entrySet()) {
                 Submodel submodel = part.getValue();
                 if (!owner.getPartVisibility(submodel)) {
                     continue;
                 }
-                bakedParts.put(part.getKey(), submodel.bakeModel(bakery, spriteGetter, modelTransform, modelLocation));
+                ForkJoinTask<IBakedModel> task = tasks.get(part.getKey());
+                bakedParts.put(part.getKey(), task == null ?
+                        submodel.bakeModel(context, bakery, spriteGetter, modelTransform, modelLocation) :
+                        task.join());
             }
 
-            return new CompositeModel(owner.isShadedInGui(), owner.isSideLit(), owner.useSmoothLighting(), particle,
+            return new FlattenedCompositeModel(owner.isShadedInGui(), owner.isSideLit(), owner.useSmoothLighting(), particle,
                     bakedParts.build(), owner.getCombinedTransform(), overrides);
         }
 
@@ -192,16 +210,24 @@ public class InfModelLoaderComposite implements InfModelLoader<InfModelLoaderCom
             throw new UnsupportedOperationException("Attempted to call adQuads on a Submodel instance. Please don't.");
         }
 
-        public IBakedModel bakeModel(ModelBakery bakery, Function<RenderMaterial, TextureAtlasSprite> spriteGetter,
+        /**
+         * Vanilla sub-models without item overrides only read sprites while baking, other sub-models may access the
+         * model bakery, which is not thread-safe
+         * @return true if this sub-model can be baked on a different thread
+         */
+        public boolean canBakeInParallel() {
+            return this.model.customData.getCustomGeometry() == null && this.model.getOverrides().isEmpty();
+        }
+
+        public IBakedModel bakeModel(TransformingFaceBakery.Context context, ModelBakery bakery, Function<RenderMaterial, TextureAtlasSprite> spriteGetter,
                                      IModelTransform modelTransform, ResourceLocation modelLocation) {
             IBakedModel baked;
             //Discern between Forge and Vanilla models, Forge handles the transformation fine, however, Vanilla does not
             if (this.model.customData.getCustomGeometry() == null) {
                 //Vanilla: use the identity transformation, but intercept baked quads and transform them right after baking
-                TransformingFaceBakery.getInstance().pushQuadTransform(this.modelTransform.getRotation());
-                baked = model.bakeModel(bakery, spriteGetter, new ModelTransformComposition(SimpleModelTransform.IDENTITY, modelTransform,
-                        this.modelTransform.isUvLock() || modelTransform.isUvLock()), modelLocation);
-                TransformingFaceBakery.getInstance().popQuadTransform();
+                baked = TransformingFaceBakery.getInstance().bakeWithTransform(context, this.modelTransform.getRotation(),
+                        () -> model.bakeModel(bakery, spriteGetter, new ModelTransformComposition(SimpleModelTransform.IDENTITY, modelTransform,
+                                this.modelTransform.isUvLock() || modelTransform.isUvLock()), modelLocation));
             } else {
                 //Forge: carry on with the predefined transformation
                 baked = model.bakeModel(bakery, spriteGetter, new ModelTransformComposition(this.modelTransform, modelTransform,
@@ -2,25 +2,63 @@ package com.infinityraider.infinitylib.render.model;
 
 import com.google.gson.JsonDeserializationContext;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 import com.infinityraider.infinitylib.InfinityLib;
+import com.infinityraider.infinitylib.render.QuadCache;
+import com.infinityraider.infinitylib.render.tessellation.TessellatorBakedQuad;
 import com.mojang.datafixers.util.Pair;
 import net.minecraft.client.renderer.model.*;
 import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
 import net.minecraft.resources.IResourceManager;
+import net.minecraft.util.Direction;
+import net.minecraft.util.JSONUtils;
 import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.math.vector.TransformationMatrix;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
 import net.minecraftforge.client.model.IModelConfiguration;
+import net.minecraftforge.client.model.QuadTransformer;
 import net.minecraftforge.client.model.geometry.IModelGeometry;
 
-import java.util.Collection;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
+/**
+ * Model loader which bakes geometry described in code with an ITessellator into static models.
+ * The geometry is baked once when the models are loaded and is rendered with the chunk, rather than every frame.
+ * See ITessellatedGeometry for the json format.
+ */
+@OnlyIn(Dist.CLIENT)
 public class InfModelLoaderTessellated implements InfModelLoader<InfModelLoaderTessellated.TessellatedGeometry> {
+    private static final ResourceLocation ID = new ResourceLocation(InfinityLib.instance.getModId(), "tessellated");
+
+    /**
+     * @deprecated use getInstance()
+     */
+    @Deprecated
     public static final InfModelLoaderTessellated INSTANCE = new InfModelLoaderTessellated();
 
-    private static final ResourceLocation ID = new ResourceLocation(InfinityLib.instance.getModId(), "tessellated");
+    public static InfModelLoaderTessellated getInstance() {
+        return INSTANCE;
+    }
+
+    private final Map<ResourceLocation, ITessellatedGeometry> geometries;
 
     private InfModelLoaderTessellated() {
+        this.geometries = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Registers geometry to be referenced from model json files, must be called before the models are loaded
+     * @param id the id of the geometry
+     * @param geometry the geometry
+     */
+    public void registerGeometry(ResourceLocation id, ITessellatedGeometry geometry) {
+        if (this.geometries.putIfAbsent(id, geometry) != null) {
+            throw new IllegalArgumentException("Tessellated geometry with id " + id + " is already registered");
+        }
     }
 
     @Override
@@ -33,19 +71,69 @@ public class InfModelLoaderTessellated implements InfModelLoader<InfModelLoaderT
 
     @Override
     public TessellatedGeometry read(JsonDeserializationContext deserializationContext, JsonObject modelContents) {
-        return null;
+        if (!modelContents.has("geometry")) {
+            throw new JsonParseException("Tessellated model requires a \"geometry\" element.");
+        }
+        ResourceLocation id = new ResourceLocation(JSONUtils.getString(modelContents, "geometry"));
+        ITessellatedGeometry geometry = this.geometries.get(id);
+        if (geometry == null) {
+            throw new JsonParseException("No tessellated geometry registered with id " + id);
+        }
+        return new TessellatedGeometry(geometry, JSONUtils.getString(modelContents, "variant", ""));
     }
 
     public static class TessellatedGeometry implements IModelGeometry<TessellatedGeometry> {
+        private final ITessellatedGeometry geometry;
+        private final String variant;
+
+        private TessellatedGeometry(ITessellatedGeometry geometry, String variant) {
+            this.geometry = geometry;
+            this.variant = variant;
+        }
 
         @Override
-        public IBakedModel bake(IModelConfiguration owner, ModelBakery bakery, Function<RenderMaterial, TextureAtlasSprite> spriteGetter, IModelTransform modelTransform, ItemOverrideList overrides, ResourceLocation modelLocation) {
-            return null;
+        public IBakedModel bake(IModelConfiguration owner, ModelBakery bakery, Function<RenderMaterial, TextureAtlasSprite> spriteGetter,
+                                IModelTransform modelTransform, ItemOverrideList overrides, ResourceLocation modelLocation) {
+            // Tessellate all quads in a single pass
+            TessellatorBakedQuad tessellator = new TessellatorBakedQuad();
+            tessellator.setTextureFunction(spriteGetter);
+            tessellator.startDrawingQuads(DefaultVertexFormats.BLOCK);
+            tessellator.setCurrentFace(TessellatorBakedQuad.Face.GENERAL);
+            this.geometry.tessellate(tessellator, owner, this.variant);
+            List<BakedQuad> quads = tessellator.getQuads();
+            tessellator.draw();
+
+            // Apply the rotation of the blockstate variant, the QuadTransformer does not rotate the orientation of the quads
+            TransformationMatrix transform = modelTransform.getRotation();
+            QuadTransformer transformer = transform.isIdentity() ? null : new QuadTransformer(transform.blockCenterToCorner());
+
+            SimpleBakedModel.Builder builder = new SimpleBakedModel.Builder(owner, overrides)
+                    .setTexture(spriteGetter.apply(owner.resolveTexture("particle")));
+            for (BakedQuad quad : quads) {
+                if (transformer != null) {
+                    quad = new BakedQuad(transformer.processOne(quad).getVertexData(), quad.getTintIndex(),
+                            Direction.rotateFace(transform.getMatrix(), quad.getFace()), quad.getSprite(), quad.applyDiffuseLighting());
+                }
+                Direction cullFace = QuadCache.getCullFace(quad);
+                if (cullFace == null) {
+                    builder.addGeneralQuad(quad);
+                } else {
+                    builder.addFaceQuad(cullFace, quad);
+                }
+            }
+            return builder.build();
         }
 
         @Override
-        public Collection<RenderMaterial> getTextures(IModelConfiguration owner, Function<ResourceLocation, IUnbakedModel> modelGetter, Set<Pair<String, String>> missingTextureErrors) {
-            return null;
+        public Collection<RenderMaterial> getTextures(IModelConfiguration owner, Function<ResourceLocation, IUnbakedModel> modelGetter,
+                                                      Set<Pair<String, String>> missingTextureErrors) {
+            Set<RenderMaterial> textures = new HashSet<>(this.geometry.getTextures(owner, this.variant));
+            if (owner.isTexturePresent("particle")) {
+                textures.add(owner.resolveTexture("particle"));
+            } else {
+                missingTextureErrors.add(Pair.of("particle", owner.getModelName()));
+            }
+            return textures;
         }
     }
 }
@@ -15,12 +15,16 @@ import javax.annotation.Nullable;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
+import java.util.function.Supplier;
 
 /**
  * Face Bakery class which replaces the Vanilla Face Bakery, used to transform Vanilla Quads right after baking,
  * for instance in case of composite models.
  *
  * Caches and calls the previous version of the Face Bakery in case someone else had also injected themselves there as well.
+ *
+ * Transformations are kept per thread, so models can be baked on multiple threads at once. To continue baking on a different
+ * thread with the transformations of the current thread, capture a Context and pass it to bakeWithTransform().
  */
 @OnlyIn(Dist.CLIENT)
 public class TransformingFaceBakery extends FaceBakery {
@@ -54,6 +58,34 @@ public class TransformingFaceBakery extends FaceBakery {
         this.transforms.get().pop();
     }
 
+    /**
+     * Captures the transformations of the current thread, the context is immutable and can be passed to other threads
+     * @return the context
+     */
+    public Context captureContext() {
+        return new Context(this.transforms.get().layer);
+    }
+
+    /**
+     * Bakes on the current thread with an additional transformation on top of a captured context,
+     * the transformations of the current thread are restored afterwards
+     * @param context the captured context
+     * @param matrix the additional transformation
+     * @param baker the baking logic
+     * @param <T> the result type
+     * @return the result of the baker
+     */
+    public <T> T bakeWithTransform(Context context, TransformationMatrix matrix, Supplier<T> baker) {
+        TransformStack stack = this.transforms.get();
+        TransformStack.Layer previous = stack.layer;
+        stack.layer = new TransformStack.Layer(context.layer, matrix);
+        try {
+            return baker.get();
+        } finally {
+            stack.layer = previous;
+        }
+    }
+
     @Override
     public BakedQuad bakeQuad(Vector3f p1, Vector3f p2, BlockPartFace face, TextureAtlasSprite sprite, Direction facing,
                               IModelTransform transform, @Nullable BlockPartRotation partRotation, boolean shade, ResourceLocation location) {
@@ -65,7 +97,18 @@ public class TransformingFaceBakery extends FaceBakery {
         this.pilot.rotateVertex(posIn, transformIn);
     }
 
-    // Stack approach to correctly handle nesting of composite models
+    /**
+     * Immutable snapshot of the transformations of a thread
+     */
+    public static final class Context {
+        private final TransformStack.Layer layer;
+
+        private Context(TransformStack.Layer layer) {
+            this.layer = layer;
+        }
+    }
+
+    // Stack approach to correctly handle nesting of composite models, layers are immutable and can be shared between threads
     private static class TransformStack {
         private Layer layer;
 
@@ -174,6 +217,12 @@ public class TransformingFaceBakery extends FaceBakery {
 
         public void popQuadTransform() {}
 
+        @Override
+        public <T> T bakeWithTransform(Context context, TransformationMatrix matrix, Supplier<T> baker) {
+            InfinityLib.instance.getLogger().error("Can not apply transform, Face Bakery has not been successfully hijacked");
+            return baker.get();
+        }
+
         @Override
         public BakedQuad bakeQuad(Vector3f p1, Vector3f p2, BlockPartFace face, TextureAtlasSprite sprite, Direction facing,
                                   IModelTransform transform, @Nullable BlockPartRotation partRotation, boolean shade, ResourceLocation location) {
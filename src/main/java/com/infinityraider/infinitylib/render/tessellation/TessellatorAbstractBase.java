@@ -1,6 +1,7 @@
 package com.infinityraider.infinitylib.render.tessellation;
 
 import com.infinityraider.infinitylib.reference.Constants;
+import com.infinityraider.infinitylib.render.Orientation;
 import com.mojang.blaze3d.matrix.MatrixStack;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.model.BakedQuad;
@@ -10,6 +11,7 @@ import net.minecraft.client.renderer.vertex.VertexFormat;
 import net.minecraft.client.renderer.vertex.VertexFormatElement;
 import net.minecraft.util.Direction;
 import net.minecraft.util.ResourceLocation;
+import net.minecraft.util.Util;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.vector.*;
 import net.minecraftforge.api.distmarker.Dist;
@@ -39,6 +41,11 @@ public abstract class TessellatorAbstractBase implements ITessellator {
      */
     public static final Vector3f STANDARD_NORMAL = new Vector3f(0, 1, 0);
 
+    /**
+     * Identity matrix, used to detect an untransformed state
+     */
+    private static final Matrix4f IDENTITY = Util.make(new Matrix4f(), Matrix4f::setIdentity);
+
     /**
      * Current transformation matrix
      */
@@ -535,6 +542,26 @@ public abstract class TessellatorAbstractBase implements ITessellator {
         this.manipulateMatrixStack(stack -> stack.scale(x, y, z));
     }
 
+    /**
+     * Rotates the current transformation around the center of the block to an orientation.
+     * When there is no other transformation, the shared transformer of the orientation is used to transform quads
+     *
+     * @param orientation the orientation
+     */
+    public void rotate(Orientation orientation) {
+        if (orientation.isIdentity()) {
+            return;
+        }
+        boolean identity = IDENTITY.equals(this.getCurrentMatrix());
+        this.manipulateMatrixStack(stack -> {
+            stack.getLast().getMatrix().mul(orientation.getMatrix());
+            stack.getLast().getNormal().mul(orientation.getNormalMatrix());
+        });
+        if (identity) {
+            this.cachedTransformer = orientation.getQuadTransformer();
+        }
+    }
+
     @Override
     public TextureAtlasSprite getIcon(RenderMaterial source) {
         if (source != null) {
@@ -4,14 +4,19 @@ import com.google.common.collect.ImmutableList;
 import net.minecraft.client.renderer.model.BakedQuad;
 import net.minecraft.client.renderer.model.RenderMaterial;
 import net.minecraft.client.renderer.texture.TextureAtlasSprite;
+import net.minecraft.client.renderer.vertex.VertexFormat;
+import net.minecraft.client.renderer.vertex.VertexFormatElement;
 import net.minecraft.util.Direction;
+import net.minecraft.util.math.vector.Vector3f;
 import net.minecraft.util.math.vector.Vector4f;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
-import net.minecraftforge.client.model.pipeline.BakedQuadBuilder;
+import net.minecraftforge.client.model.pipeline.LightUtil;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -39,9 +44,28 @@ public class TessellatorBakedQuad extends TessellatorAbstractBase {
      */
     private final List<BakedQuad> quads;
     /**
-     * Currently constructed vertices
+     * Vertex data of the quad currently being constructed, packed in the current vertex format.
+     * The array is handed over to the BakedQuad once the quad is complete
      */
-    private final List<VertexData> vertexData;
+    private int[] vertexData;
+    /**
+     * Number of vertices of the current quad
+     */
+    private int vertexCount;
+    /**
+     * Packing layout of the current vertex format
+     */
+    private VertexLayout layout;
+    /**
+     * Scratch objects, reused for every vertex
+     */
+    private final Vector4f position;
+    private final float[] element;
+    /**
+     * Sprite for which the UV interpolation is precomputed
+     */
+    private TextureAtlasSprite uvSprite;
+    private float minU, scaleU, minV, scaleV;
 
     /**
      * Current drawing mode
@@ -67,7 +91,8 @@ public class TessellatorBakedQuad extends TessellatorAbstractBase {
     public TessellatorBakedQuad() {
         super();
         this.quads = new ArrayList<>();
-        this.vertexData = new ArrayList<>();
+        this.position = new Vector4f();
+        this.element = new float[4];
         this.drawMode = DRAW_MODE_NOT_DRAWING;
         this.face = Face.NONE;
     }
@@ -89,6 +114,8 @@ public class TessellatorBakedQuad extends TessellatorAbstractBase {
     public void startDrawing(int mode) {
         if (drawMode == DRAW_MODE_NOT_DRAWING) {
             this.drawMode = mode;
+            this.layout = VertexLayout.get(this.getVertexFormat());
+            this.vertexCount = 0;
         } else {
             throw new RuntimeException("ALREADY CONSTRUCTING VERTICES");
         }
@@ -112,7 +139,9 @@ public class TessellatorBakedQuad extends TessellatorAbstractBase {
     protected void onDrawCall() {
         if (drawMode != DRAW_MODE_NOT_DRAWING) {
             quads.clear();
-            vertexData.clear();
+            this.vertexData = null;
+            this.vertexCount = 0;
+            this.layout = null;
             this.drawMode = DRAW_MODE_NOT_DRAWING;
             this.textureFunction = null;
             this.face = Face.NONE;
@@ -156,7 +185,15 @@ public class TessellatorBakedQuad extends TessellatorAbstractBase {
             sprite = this.getMissingSprite();
         }
         this.icon = sprite;
-        this.addVertexWithUV(x, y, z, sprite.getInterpolatedU(u), sprite.getInterpolatedV(v));
+        if (sprite != this.uvSprite) {
+            // Same interpolation as TextureAtlasSprite.getInterpolatedU/V, without recomputing the scale for every vertex
+            this.uvSprite = sprite;
+            this.minU = sprite.getMinU();
+            this.scaleU = (sprite.getMaxU() - this.minU) / 16.0F;
+            this.minV = sprite.getMinV();
+            this.scaleV = (sprite.getMaxV() - this.minV) / 16.0F;
+        }
+        this.addVertexWithUV(x, y, z, this.minU + u * this.scaleU, this.minV + v * this.scaleV);
     }
 
     /**
@@ -174,32 +211,30 @@ public class TessellatorBakedQuad extends TessellatorAbstractBase {
             throw new RuntimeException("NOT CONSTRUCTING VERTICES");
         }
         
-        // Create and transform the point.
-        final Vector4f pos = new Vector4f(x, y, z, 1);
-        this.transform(pos);
-        
-        // Create the new vertex data element.
-        final VertexData vert = new VertexData(getVertexFormat());
-        vert.setXYZ(pos.getX(), pos.getY(), pos.getZ());
-        vert.setUV(u, v);
-        vert.setRGBA(this.getRed(), this.getGreen(), this.getBlue(), this.getAlpha());
-        vert.setNormal(this.getNormal().getX(), this.getNormal().getY(), this.getNormal().getZ());
-        this.vertexData.add(vert);
-        
-        if (this.vertexData.size() == this.drawMode) {
-            final Direction dir = Direction.getFacingFromVector(this.getNormal().getX(), this.getNormal().getY(), this.getNormal().getZ());
+        if (this.vertexData == null) {
+            this.vertexData = new int[this.drawMode * this.layout.getIntegerSize()];
+        }
+
+        // Transform the point in place
+        this.position.set(x, y, z, 1);
+        this.transform(this.position);
+
+        // Pack the vertex straight into the quad's vertex data
+        final Vector3f normal = this.getNormal();
+        this.layout.pack(this.vertexData, this.vertexCount, this.element,
+                this.position.getX(), this.position.getY(), this.position.getZ(), u, v,
+                this.getRed(), this.getGreen(), this.getBlue(), this.getAlpha(),
+                normal.getX(), normal.getY(), normal.getZ());
+        this.vertexCount++;
+
+        if (this.vertexCount == this.drawMode) {
+            final Direction dir = Direction.getFacingFromVector(normal.getX(), normal.getY(), normal.getZ());
             if (this.face.accepts(dir)) {
-                BakedQuadBuilder builder = new BakedQuadBuilder();
-                builder.setQuadTint(this.getTintIndex());
-                builder.setApplyDiffuseLighting(this.getApplyDiffuseLighting());
-                builder.setQuadOrientation(dir);
-                builder.setTexture(this.icon);
-                for (VertexData vertex : this.vertexData) {
-                    vertex.applyVertexData(builder);
-                }
-                quads.add(builder.build());
+                this.quads.add(new BakedQuad(this.vertexData, this.getTintIndex(), dir, this.icon, this.getApplyDiffuseLighting()));
+                // The quad owns the array now
+                this.vertexData = null;
             }
-            vertexData.clear();
+            this.vertexCount = 0;
         }
     }
 
@@ -237,6 +272,92 @@ public class TessellatorBakedQuad extends TessellatorAbstractBase {
         return this;
     }
 
+    /**
+     * Precomputed packing layout of a vertex format, shared between all tessellators
+     */
+    private static final class VertexLayout {
+        private static final Map<VertexFormat, VertexLayout> LAYOUTS = new ConcurrentHashMap<>();
+
+        private static final int POSITION = 0;
+        private static final int TEXTURE = 1;
+        private static final int LIGHT_MAP = 2;
+        private static final int COLOR = 3;
+        private static final int NORMAL = 4;
+        private static final int OTHER = 5;
+
+        private static VertexLayout get(VertexFormat format) {
+            return LAYOUTS.computeIfAbsent(format, VertexLayout::new);
+        }
+
+        private final VertexFormat format;
+        private final int[] elements;
+        private final int integerSize;
+
+        private VertexLayout(VertexFormat format) {
+            this.format = format;
+            this.elements = new int[format.getElements().size()];
+            for (int index = 0; index < this.elements.length; index++) {
+                this.elements[index] = this.classify(format.getElements().get(index));
+            }
+            this.integerSize = format.getIntegerSize();
+        }
+
+        private int classify(VertexFormatElement element) {
+            switch (element.getUsage()) {
+                case POSITION:
+                    return POSITION;
+                case UV:
+                    // UV exists for two different VertexFormatElements; one is texture, another light map
+                    return element.getType() == VertexFormatElement.Type.FLOAT ? TEXTURE : LIGHT_MAP;
+                case COLOR:
+                    return COLOR;
+                case NORMAL:
+                    return NORMAL;
+                default:
+                    //We don't care about PADDING or other elements
+                    return OTHER;
+            }
+        }
+
+        private int getIntegerSize() {
+            return this.integerSize;
+        }
+
+        private void pack(int[] data, int vertex, float[] element, float x, float y, float z, float u, float v,
+                          float r, float g, float b, float a, float nX, float nY, float nZ) {
+            for (int index = 0; index < this.elements.length; index++) {
+                switch (this.elements[index]) {
+                    case POSITION:
+                        this.put(element, x, y, z, 1);
+                        break;
+                    case TEXTURE:
+                        this.put(element, u, v, 0, 1);
+                        break;
+                    case LIGHT_MAP:
+                        // Put (0, 0) for automatic light map
+                        this.put(element, 0, 0, 0, 0);
+                        break;
+                    case COLOR:
+                        this.put(element, r, g, b, a);
+                        break;
+                    case NORMAL:
+                        this.put(element, nX, nY, nZ, 0);
+                        break;
+                    default:
+                        continue;
+                }
+                LightUtil.pack(element, data, this.format, vertex, index);
+            }
+        }
+
+        private void put(float[] element, float a, float b, float c, float d) {
+            element[0] = a;
+            element[1] = b;
+            element[2] = c;
+            element[3] = d;
+        }
+    }
+
     public enum Face {
         NONE(false),
         GENERAL(true),
@@ -6,6 +6,7 @@ import net.minecraft.client.renderer.Tessellator;
 import net.minecraft.client.renderer.model.BakedQuad;
 import net.minecraft.client.renderer.texture.OverlayTexture;
 import net.minecraft.client.renderer.vertex.DefaultVertexFormats;
+import net.minecraft.client.renderer.vertex.VertexFormat;
 import net.minecraft.client.renderer.vertex.VertexFormatElement;
 import net.minecraft.util.Direction;
 import net.minecraft.util.math.vector.Vector4f;
@@ -13,22 +14,45 @@ import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
 import org.lwjgl.opengl.GL11;
 
-import java.util.HashMap;
+import java.lang.ref.SoftReference;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 @OnlyIn(Dist.CLIENT)
 @SuppressWarnings("unused")
 public class TessellatorVertexBuffer extends TessellatorAbstractBase {
 
-    private static final Map<BufferBuilder, ThreadLocal<TessellatorVertexBuffer>> instances = new HashMap<>();
+    /**
+     * Instances per thread and buffer. Every thread has its own map, so no synchronization is needed.
+     * The buffers are weak keys, the instances are held softly as they refer to their buffer
+     */
+    private static final ThreadLocal<Map<BufferBuilder, SoftReference<TessellatorVertexBuffer>>> instances =
+            ThreadLocal.withInitial(WeakHashMap::new);
+
+    /**
+     * Compiled vertex writers per vertex format, shared between all threads
+     */
+    private static final Map<VertexFormat, VertexWriter> writers = new ConcurrentHashMap<>();
 
     private final Tessellator tessellator;
     private final BufferBuilder buffer;
 
+    /**
+     * Scratch position, reused for every vertex
+     */
+    private final Vector4f position;
+
+    /**
+     * Vertex writer for the current vertex format, selected when drawing starts
+     */
+    private VertexWriter writer;
+
     private TessellatorVertexBuffer(BufferBuilder buffer, Tessellator tessellator) {
         this.buffer = buffer;
         this.tessellator = tessellator;
+        this.position = new Vector4f();
     }
 
     public static TessellatorVertexBuffer getInstance() {
@@ -44,14 +68,12 @@ public class TessellatorVertexBuffer extends TessellatorAbstractBase {
     }
 
     private static TessellatorVertexBuffer getInstance(BufferBuilder buffer, Tessellator tessellator) {
-        if (!instances.containsKey(buffer)) {
-            instances.put(buffer, new ThreadLocal<>());
-        }
-        ThreadLocal<TessellatorVertexBuffer> threadLocal = instances.get(buffer);
-        TessellatorVertexBuffer tess = threadLocal.get();
+        Map<BufferBuilder, SoftReference<TessellatorVertexBuffer>> map = instances.get();
+        SoftReference<TessellatorVertexBuffer> reference = map.get(buffer);
+        TessellatorVertexBuffer tess = reference == null ? null : reference.get();
         if (tess == null) {
             tess = new TessellatorVertexBuffer(buffer, tessellator);
-            threadLocal.set(tess);
+            map.put(buffer, new SoftReference<>(tess));
         }
         return tess;
     }
@@ -70,6 +92,7 @@ public class TessellatorVertexBuffer extends TessellatorAbstractBase {
      */
     @Override
     protected void onStartDrawingQuadsCall() {
+        this.writer = writers.computeIfAbsent(this.getVertexFormat(), VertexWriter::compile);
         buffer.begin(GL11.GL_QUADS, getVertexFormat());
     }
 
@@ -89,6 +112,7 @@ public class TessellatorVertexBuffer extends TessellatorAbstractBase {
      */
     @Override
     protected void onDrawCall() {
+        this.writer = null;
         if (tessellator != null) {
             tessellator.draw();
         } else {
@@ -118,21 +142,12 @@ public class TessellatorVertexBuffer extends TessellatorAbstractBase {
      */
     @Override
     public void addVertexWithUV(float x, float y, float z, float u, float v) {
-        final Vector4f pos = new Vector4f(x, y, z, 1);
-        this.transform(pos);
-        List<VertexFormatElement> elements = this.getVertexFormat().getElements();
-        if(elements.contains(DefaultVertexFormats.POSITION_3F)) {
-            buffer.pos(pos.getX(), pos.getY(), pos.getZ());
-        }
-        if(elements.contains(DefaultVertexFormats.TEX_2F)) {
-            buffer.tex(u, v);
-        }
-        if(elements.contains(DefaultVertexFormats.COLOR_4UB)) {
-            buffer.color((int) (this.getRed() * 255), (int) (this.getGreen() * 255), (int) (this.getBlue() * 255), (int) (this.getAlpha() * 255));
-        }
-        if(elements.contains(DefaultVertexFormats.NORMAL_3B)) {
-            buffer.normal(this.getNormal().getX(), this.getNormal().getY(), this.getNormal().getZ());
+        if (this.writer == null) {
+            throw new RuntimeException("NOT CONSTRUCTING VERTICES");
         }
+        this.position.set(x, y, z, 1);
+        this.transform(this.position);
+        this.writer.write(this, this.position, u, v);
         buffer.endVertex();
     }
 
@@ -157,4 +172,82 @@ public class TessellatorVertexBuffer extends TessellatorAbstractBase {
                 return 1;
         }
     }
+
+    private void writeColor() {
+        this.buffer.color((int) (this.getRed() * 255), (int) (this.getGreen() * 255), (int) (this.getBlue() * 255), (int) (this.getAlpha() * 255));
+    }
+
+    private void writeNormal() {
+        this.buffer.normal(this.getNormal().getX(), this.getNormal().getY(), this.getNormal().getZ());
+    }
+
+    /**
+     * Writes the elements of a vertex, compiled once per vertex format.
+     * The elements are written in the order of the format, elements which are not known are skipped
+     */
+    @FunctionalInterface
+    private interface VertexWriter {
+        void write(TessellatorVertexBuffer tess, Vector4f pos, float u, float v);
+
+        static VertexWriter compile(VertexFormat format) {
+            // Specialized writers for the most common formats
+            if (format.equals(DefaultVertexFormats.POSITION_TEX)) {
+                return (tess, pos, u, v) -> tess.buffer.pos(pos.getX(), pos.getY(), pos.getZ()).tex(u, v);
+            }
+            if (format.equals(DefaultVertexFormats.POSITION_COLOR_TEX)) {
+                return (tess, pos, u, v) -> {
+                    tess.buffer.pos(pos.getX(), pos.getY(), pos.getZ());
+                    tess.writeColor();
+                    tess.buffer.tex(u, v);
+                };
+            }
+            if (format.equals(DefaultVertexFormats.POSITION_TEX_COLOR_NORMAL)) {
+                return (tess, pos, u, v) -> {
+                    tess.buffer.pos(pos.getX(), pos.getY(), pos.getZ()).tex(u, v);
+                    tess.writeColor();
+                    tess.writeNormal();
+                };
+            }
+            // Generic writer, composed from the elements of the format
+            List<VertexFormatElement> elements = format.getElements();
+            VertexWriter writer = (tess, pos, u, v) -> {};
+            for (VertexFormatElement element : elements) {
+                writer = writer.andThen(forElement(element));
+            }
+            return writer;
+        }
+
+        static VertexWriter forElement(VertexFormatElement element) {
+            switch (element.getUsage()) {
+                case POSITION:
+                    return (tess, pos, u, v) -> tess.buffer.pos(pos.getX(), pos.getY(), pos.getZ());
+                case COLOR:
+                    return (tess, pos, u, v) -> tess.writeColor();
+                case NORMAL:
+                    return (tess, pos, u, v) -> tess.writeNormal();
+                case UV:
+                    switch (element.getIndex()) {
+                        case 0:
+                            return (tess, pos, u, v) -> tess.buffer.tex(u, v);
+                        case 1:
+                            return (tess, pos, u, v) -> tess.buffer.overlay(OverlayTexture.NO_OVERLAY);
+                        case 2:
+                            return (tess, pos, u, v) -> tess.buffer.lightmap(tess.getBrightness());
+                        default:
+                            //Unknown texture coordinate sets are skipped like other unknown elements
+                            return (tess, pos, u, v) -> {};
+                    }
+                default:
+                    //Padding or unknown elements are skipped by the buffer itself
+                    return (tess, pos, u, v) -> {};
+            }
+        }
+
+        default VertexWriter andThen(VertexWriter next) {
+            return (tess, pos, u, v) -> {
+                this.write(tess, pos, u, v);
+                next.write(tess, pos, u, v);
+            };
+        }
+    }
 }
@@ -0,0 +1,59 @@
+package com.infinityraider.infinitylib.render.tile;
+
+import com.mojang.blaze3d.matrix.MatrixStack;
+import net.minecraft.client.renderer.IRenderTypeBuffer;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+
+/**
+ * Tile renderer with multiple levels of detail, the level is chosen by the TileEntityRendererWrapper based on the
+ * distance between the camera and the tile. Level 0 is the most detailed level, used closest to the camera.
+ *
+ * Tiles beyond the last distance are not rendered at all.
+ * Levels with an update interval larger than one frame are recorded, and replayed in between updates (see StaticTileGeometry),
+ * the render method is then called with an identity matrix and must render the same for the same partial ticks.
+ */
+@OnlyIn(Dist.CLIENT)
+public interface ILodTileRenderer<T extends TileEntity> extends ITileRenderer<T> {
+	/**
+	 * Defines the levels of detail, level i is used up to distance i, beyond the last distance tiles are culled.
+	 * The returned array must be ascending and must not change.
+	 * @return the maximum distance in blocks for every level
+	 */
+	double[] getLodDistances();
+
+	/**
+	 * Renders a tile at a level of detail
+	 * @param tile the tile
+	 * @param level the level of detail
+	 * @param partialTicks the partial ticks
+	 * @param transforms the transformations
+	 * @param buffer the buffer
+	 * @param light the light
+	 * @param overlay the overlay
+	 */
+	void render(T tile, int level, float partialTicks, MatrixStack transforms, IRenderTypeBuffer buffer, int light, int overlay);
+
+	@Override
+	default void render(T tile, float partialTicks, MatrixStack transforms, IRenderTypeBuffer buffer, int light, int overlay) {
+		this.render(tile, 0, partialTicks, transforms, buffer, light, overlay);
+	}
+
+	/**
+	 * Distance in blocks a tile has to move beyond a threshold before its level changes, prevents flickering between levels
+	 * @return the hysteresis
+	 */
+	default double getLodHysteresis() {
+		return 2.0;
+	}
+
+	/**
+	 * Number of frames between animation updates at a level, in between updates the last rendered frame is replayed
+	 * @param level the level of detail
+	 * @return the update interval in frames, 1 to update every frame
+	 */
+	default int getUpdateInterval(int level) {
+		return 1;
+	}
+}
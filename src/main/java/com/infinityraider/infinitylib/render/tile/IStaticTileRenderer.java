@@ -0,0 +1,27 @@
+package com.infinityraider.infinitylib.render.tile;
+
+import net.minecraft.tileentity.TileEntity;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+
+import javax.annotation.Nullable;
+
+/**
+ * Tile renderer which renders the same geometry for as long as the state of the tile does not change.
+ * The vertices emitted by the first render are recorded and replayed in later frames, with only the current matrix,
+ * light and overlay applied, see StaticTileGeometry.
+ *
+ * The render method is called with an identity matrix while recording and must not depend on the partial ticks.
+ * The light and overlay passed to the render method are replaced by the current values on replay.
+ */
+@OnlyIn(Dist.CLIENT)
+public interface IStaticTileRenderer<T extends TileEntity> extends ITileRenderer<T> {
+	/**
+	 * Determines the key of the state the rendered geometry depends on, the geometry is recorded again when the key changes.
+	 * Keys are compared with equals()
+	 * @param tile the tile
+	 * @return the key, or null to render without recording
+	 */
+	@Nullable
+	Object getStaticGeometryKey(T tile);
+}
@@ -0,0 +1,197 @@
+package com.infinityraider.infinitylib.render.tile;
+
+import com.mojang.blaze3d.matrix.MatrixStack;
+import com.mojang.blaze3d.vertex.IVertexBuilder;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.client.renderer.IRenderTypeBuffer;
+import net.minecraft.client.renderer.RenderType;
+import net.minecraft.util.math.vector.Matrix3f;
+import net.minecraft.util.math.vector.Matrix4f;
+import net.minecraft.util.math.vector.Vector3f;
+import net.minecraft.util.math.vector.Vector4f;
+import net.minecraftforge.api.distmarker.Dist;
+import net.minecraftforge.api.distmarker.OnlyIn;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Vertices recorded from a tile renderer, which can be replayed into a buffer with a different matrix, light and overlay.
+ * Every vertex is stored in 7 integers: the position, the packed color, the texture coordinates and the packed normal.
+ */
+@OnlyIn(Dist.CLIENT)
+public class StaticTileGeometry {
+	private static final int VERTEX_SIZE = 7;
+
+	private final RenderType[] types;
+	private final int[][] vertices;
+
+	private StaticTileGeometry(RenderType[] types, int[][] vertices) {
+		this.types = types;
+		this.vertices = vertices;
+	}
+
+	/**
+	 * Records the vertices emitted by a renderer
+	 * @param renderer the rendering logic, called with an identity matrix and the recording buffer
+	 * @return the recorded geometry
+	 */
+	public static StaticTileGeometry record(Consumer<Recorder> renderer) {
+		Recorder recorder = new Recorder();
+		renderer.accept(recorder);
+		return recorder.build();
+	}
+
+	/**
+	 * Replays the recorded vertices
+	 * @param transforms the current transformation
+	 * @param buffer the buffer to render to
+	 * @param light the current light
+	 * @param overlay the current overlay
+	 */
+	public void replay(MatrixStack transforms, IRenderTypeBuffer buffer, int light, int overlay) {
+		Matrix4f matrix = transforms.getLast().getMatrix();
+		Matrix3f normalMatrix = transforms.getLast().getNormal();
+		Vector4f pos = new Vector4f();
+		Vector3f normal = new Vector3f();
+		for (int i = 0; i < this.types.length; i++) {
+			IVertexBuilder builder = buffer.getBuffer(this.types[i]);
+			int[] data = this.vertices[i];
+			for (int offset = 0; offset < data.length; offset += VERTEX_SIZE) {
+				pos.set(Float.intBitsToFloat(data[offset]), Float.intBitsToFloat(data[offset + 1]), Float.intBitsToFloat(data[offset + 2]), 1);
+				pos.transform(matrix);
+				int color = data[offset + 3];
+				int packedNormal = data[offset + 6];
+				normal.set(((byte) packedNormal) / 127.0F, ((byte) (packedNormal >> 8)) / 127.0F, ((byte) (packedNormal >> 16)) / 127.0F);
+				normal.transform(normalMatrix);
+				builder.addVertex(pos.getX(), pos.getY(), pos.getZ(),
+						(color & 255) / 255.0F, (color >> 8 & 255) / 255.0F, (color >> 16 & 255) / 255.0F, (color >>> 24) / 255.0F,
+						Float.intBitsToFloat(data[offset + 4]), Float.intBitsToFloat(data[offset + 5]),
+						overlay, light, normal.getX(), normal.getY(), normal.getZ());
+			}
+		}
+	}
+
+	/**
+	 * @return the number of recorded vertices
+	 */
+	public int getVertexCount() {
+		int count = 0;
+		for (int[] data : this.vertices) {
+			count += data.length / VERTEX_SIZE;
+		}
+		return count;
+	}
+
+	/**
+	 * Buffer recording the vertices for every render type
+	 */
+	public static final class Recorder implements IRenderTypeBuffer {
+		private final MatrixStack transforms;
+		private final Map<RenderType, RecordingBuilder> builders;
+
+		private Recorder() {
+			this.transforms = new MatrixStack();
+			this.builders = new LinkedHashMap<>();
+		}
+
+		/**
+		 * @return an identity matrix stack to render with
+		 */
+		public MatrixStack getTransforms() {
+			return this.transforms;
+		}
+
+		@Override
+		public IVertexBuilder getBuffer(RenderType type) {
+			return this.builders.computeIfAbsent(type, t -> new RecordingBuilder());
+		}
+
+		private StaticTileGeometry build() {
+			RenderType[] types = new RenderType[this.builders.size()];
+			int[][] vertices = new int[types.length][];
+			int index = 0;
+			for (Map.Entry<RenderType, RecordingBuilder> entry : this.builders.entrySet()) {
+				types[index] = entry.getKey();
+				vertices[index] = entry.getValue().data.toIntArray();
+				index++;
+			}
+			return new StaticTileGeometry(types, vertices);
+		}
+	}
+
+	private static final class RecordingBuilder implements IVertexBuilder {
+		private static final int WHITE = 0xFFFFFFFF;
+		private static final int UP = 127 << 8;
+
+		private final IntArrayList data;
+		private float x, y, z;
+		private int color;
+		private float u, v;
+		private int normal;
+
+		private RecordingBuilder() {
+			this.data = new IntArrayList();
+			this.reset();
+		}
+
+		private void reset() {
+			this.color = WHITE;
+			this.u = 0;
+			this.v = 0;
+			this.normal = UP;
+		}
+
+		@Override
+		public IVertexBuilder pos(double x, double y, double z) {
+			this.x = (float) x;
+			this.y = (float) y;
+			this.z = (float) z;
+			return this;
+		}
+
+		@Override
+		public IVertexBuilder color(int red, int green, int blue, int alpha) {
+			this.color = (red & 255) | (green & 255) << 8 | (blue & 255) << 16 | (alpha & 255) << 24;
+			return this;
+		}
+
+		@Override
+		public IVertexBuilder tex(float u, float v) {
+			this.u = u;
+			this.v = v;
+			return this;
+		}
+
+		@Override
+		public IVertexBuilder overlay(int u, int v) {
+			// Replaced by the current overlay on replay
+			return this;
+		}
+
+		@Override
+		public IVertexBuilder lightmap(int u, int v) {
+			// Replaced by the current light on replay
+			return this;
+		}
+
+		@Override
+		public IVertexBuilder normal(float x, float y, float z) {
+			this.normal = ((byte) (x * 127) & 255) | ((byte) (y * 127) & 255) << 8 | ((byte) (z * 127) & 255) << 16;
+			return this;
+		}
+
+		@Override
+		public void endVertex() {
+			this.data.add(Float.floatToRawIntBits(this.x));
+			this.data.add(Float.floatToRawIntBits(this.y));
+			this.data.add(Float.floatToRawIntBits(this.z));
+			this.data.add(this.color);
+			this.data.add(Float.floatToRawIntBits(this.u));
+			this.data.add(Float.floatToRawIntBits(this.v));
+			this.data.add(this.normal);
+			this.reset();
+		}
+	}
+}
@@ -1,22 +1,42 @@
 package com.infinityraider.infinitylib.render.tile;
 
+import com.infinityraider.infinitylib.render.IReloadableCache;
+import com.infinityraider.infinitylib.render.QuadCache;
 import com.mojang.blaze3d.matrix.MatrixStack;
 import net.minecraft.client.renderer.IRenderTypeBuffer;
 import net.minecraft.client.renderer.tileentity.TileEntityRenderer;
 import net.minecraft.client.renderer.tileentity.TileEntityRendererDispatcher;
 import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.vector.Vector3d;
 import net.minecraftforge.api.distmarker.Dist;
 import net.minecraftforge.api.distmarker.OnlyIn;
+import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.eventbus.api.SubscribeEvent;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
 
 /**
  * TER wrapper class to allow for use of the ITesr interface.
  * This is a way to simulate multiple inheritance of renderers.
+ *
+ * For IStaticTileRenderers, the rendered geometry is recorded per tile and replayed until the tile's key changes.
+ * For ILodTileRenderers, the level of detail is chosen per tile from the distance to the camera, distant tiles are culled,
+ * and levels which are not updated every frame are recorded and replayed in between updates.
  */
 @OnlyIn(Dist.CLIENT)
-public class TileEntityRendererWrapper<T extends TileEntity> extends TileEntityRenderer<T> {
-	
+public class TileEntityRendererWrapper<T extends TileEntity> extends TileEntityRenderer<T> implements IReloadableCache {
+
 	private final ITileRenderer<T> tesr;
 
+	/**
+	 * Render state per tile, synchronized as the states are cleared from the model bake event
+	 */
+	private final Map<T, TileRenderState> states;
+
 	@SuppressWarnings("unchecked")
 	public static TileEntityRendererWrapper createWrapper(TileEntityRendererDispatcher dispatcher, ITileRenderer renderer) {
 		return new TileEntityRendererWrapper(dispatcher, renderer);
@@ -25,10 +45,154 @@ public class TileEntityRendererWrapper<T extends TileEntity> extends TileEntityR
 	private TileEntityRendererWrapper(TileEntityRendererDispatcher dispatcher, ITileRenderer<T> renderer) {
 		super(dispatcher);
 		this.tesr = renderer;
+		this.states = Collections.synchronizedMap(new WeakHashMap<>());
+		if (renderer instanceof IStaticTileRenderer || renderer instanceof ILodTileRenderer) {
+			// Recorded texture coordinates are invalid after the atlas is stitched again
+			QuadCache.registerForReload(this);
+		}
 	}
 
 	@Override
 	public void render(T tile, float partialTicks, MatrixStack transforms, IRenderTypeBuffer buffer, int light, int overlay) {
-		this.tesr.render(tile, partialTicks, transforms, buffer, light, overlay);
+		if (!(this.tesr instanceof IStaticTileRenderer) && !(this.tesr instanceof ILodTileRenderer)) {
+			this.tesr.render(tile, partialTicks, transforms, buffer, light, overlay);
+			return;
+		}
+		TileRenderState state = this.states.computeIfAbsent(tile, t -> new TileRenderState());
+		int level = 0;
+		int interval = 1;
+		if (this.tesr instanceof ILodTileRenderer) {
+			ILodTileRenderer<T> lod = (ILodTileRenderer<T>) this.tesr;
+			level = state.updateLevel(lod, this.getDistance(tile.getPos()));
+			if (level >= lod.getLodDistances().length) {
+				// Beyond the cutoff distance
+				return;
+			}
+			interval = Math.max(1, lod.getUpdateInterval(level));
+		}
+		Object key = this.tesr instanceof IStaticTileRenderer ? ((IStaticTileRenderer<T>) this.tesr).getStaticGeometryKey(tile) : null;
+		if (key == null && interval == 1) {
+			state.discardGeometry();
+			this.renderLevel(tile, level, partialTicks, transforms, buffer, light, overlay);
+			return;
+		}
+		int frame = FrameCounter.getInstance().getFrame();
+		if (!state.hasGeometry(key, level, frame, interval)) {
+			final int recordLevel = level;
+			state.setGeometry(key, level, frame, StaticTileGeometry.record(recorder ->
+					this.renderLevel(tile, recordLevel, partialTicks, recorder.getTransforms(), recorder, light, overlay)));
+		}
+		state.getGeometry().replay(transforms, buffer, light, overlay);
+	}
+
+	private void renderLevel(T tile, int level, float partialTicks, MatrixStack transforms, IRenderTypeBuffer buffer, int light, int overlay) {
+		if (this.tesr instanceof ILodTileRenderer) {
+			((ILodTileRenderer<T>) this.tesr).render(tile, level, partialTicks, transforms, buffer, light, overlay);
+		} else {
+			this.tesr.render(tile, partialTicks, transforms, buffer, light, overlay);
+		}
+	}
+
+	private double getDistance(BlockPos pos) {
+		Vector3d camera = this.renderDispatcher.renderInfo.getProjectedView();
+		double dx = pos.getX() + 0.5 - camera.getX();
+		double dy = pos.getY() + 0.5 - camera.getY();
+		double dz = pos.getZ() + 0.5 - camera.getZ();
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	@Override
+	public void clear() {
+		this.states.clear();
+	}
+
+	private static final class TileRenderState {
+		private int level;
+		private StaticTileGeometry geometry;
+		private Object key;
+		private int geometryLevel;
+		private int frame;
+
+		private TileRenderState() {
+			this.level = -1;
+		}
+
+		/**
+		 * Determines the level of detail, the level only changes when the distance exceeds the threshold by the hysteresis
+		 */
+		private int updateLevel(ILodTileRenderer<?> renderer, double distance) {
+			double[] distances = renderer.getLodDistances();
+			int target = getLevel(distances, distance);
+			if (this.level >= 0) {
+				double hysteresis = renderer.getLodHysteresis();
+				if (target > this.level) {
+					target = Math.max(this.level, getLevel(distances, distance - hysteresis));
+				} else if (target < this.level) {
+					target = Math.min(this.level, getLevel(distances, distance + hysteresis));
+				}
+			}
+			this.level = target;
+			return target;
+		}
+
+		private static int getLevel(double[] distances, double distance) {
+			for (int level = 0; level < distances.length; level++) {
+				if (distance < distances[level]) {
+					return level;
+				}
+			}
+			return distances.length;
+		}
+
+		private boolean hasGeometry(Object key, int level, int frame, int interval) {
+			if (this.geometry == null || this.geometryLevel != level || !Objects.equals(this.key, key)) {
+				return false;
+			}
+			// Geometry with a key is static, other geometry is updated every interval
+			return key != null || frame - this.frame < interval;
+		}
+
+		private void setGeometry(Object key, int level, int frame, StaticTileGeometry geometry) {
+			this.key = key;
+			this.geometryLevel = level;
+			this.frame = frame;
+			this.geometry = geometry;
+		}
+
+		private StaticTileGeometry getGeometry() {
+			return this.geometry;
+		}
+
+		private void discardGeometry() {
+			this.geometry = null;
+			this.key = null;
+		}
+	}
+
+	/**
+	 * Counts rendered frames, used to skip updates of distant tiles
+	 */
+	public static final class FrameCounter {
+		private static final FrameCounter INSTANCE = new FrameCounter();
+
+		public static FrameCounter getInstance() {
+			return INSTANCE;
+		}
+
+		private int frame;
+
+		private FrameCounter() {}
+
+		public int getFrame() {
+			return this.frame;
+		}
+
+		@SubscribeEvent
+		@SuppressWarnings("unused")
+		public void onRenderTick(TickEvent.RenderTickEvent event) {
+			if (event.phase == TickEvent.Phase.START) {
+				this.frame++;
+			}
+		}
 	}
-}
\ No newline at end of file
+}